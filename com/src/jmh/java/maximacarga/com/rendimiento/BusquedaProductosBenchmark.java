@@ -0,0 +1,91 @@
+package maximacarga.com.rendimiento;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import maximacarga.com.servicios.IndiceBusquedaProductos;
+
+/**
+ * Búsqueda de GET /api/productos/buscar sobre un catálogo sintético de
+ * 100.000 productos (nombres y descripciones con palabras repetidas, como
+ * un catálogo real). Mide solo el índice en memoria; la lectura de los
+ * resúmenes encontrados es una consulta por clave primaria.
+ *
+ * Las consultas cubren una palabra completa, un prefijo, dos palabras,
+ * una palabra con acento, una que solo aparece en descripciones, tres
+ * palabras y un prefijo de una letra que casa con muchas palabras.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BusquedaProductosBenchmark {
+
+    private static final String[] TIPOS = {
+        "palé", "caja", "bobina", "contenedor", "estantería", "carretilla", "transpalé", "fleje",
+        "film", "etiqueta", "precinto", "cinta", "saco", "bidón", "garrafa", "jaula", "rampa",
+        "báscula", "grúa", "eslinga", "cadena", "cuerda", "lona", "malla", "tornillo", "tuerca",
+        "arandela", "bisagra", "candado", "cerradura", "escalera", "andamio", "taquilla", "banco",
+        "mesa", "silla", "armario", "cajón", "bandeja", "cubeta", "barril", "depósito", "tanque",
+        "manguera", "bomba", "compresor", "generador", "batería", "cargador", "linterna"
+    };
+    private static final String[] ADJETIVOS = {
+        "europeo", "reforzado", "ligero", "pesado", "plegable", "apilable", "galvanizado",
+        "inoxidable", "reciclado", "eléctrico", "manual", "industrial", "compacto", "extensible",
+        "térmico", "impermeable", "antideslizante", "homologado", "desmontable", "portátil"
+    };
+    private static final String[] MATERIALES = {
+        "madera", "acero", "aluminio", "plástico", "cartón", "polietileno", "polipropileno",
+        "hierro", "caucho", "nailon", "poliéster", "fibra", "vidrio", "cobre", "latón"
+    };
+    private static final String[] USOS = {
+        "almacén", "transporte", "mudanza", "logística", "exportación", "taller", "obra",
+        "cámara frigorífica", "muelle de carga", "paletizado", "picking", "expedición"
+    };
+
+    private static final int PRODUCTOS = 100_000;
+    private static final int RESULTADOS = 20;
+
+    @Param({ "carretilla", "carret", "pale madera", "bascula", "almacén", "almacén acero reforzado", "c" })
+    private String consulta;
+
+    private IndiceBusquedaProductos indice;
+
+    @Setup
+    public void preparar() {
+        indice = new IndiceBusquedaProductos();
+        Random aleatorio = new Random(42);
+        for (long id = 1; id <= PRODUCTOS; id++) {
+            String nombre = elegir(aleatorio, TIPOS) + " " + elegir(aleatorio, ADJETIVOS) + " de "
+                    + elegir(aleatorio, MATERIALES) + " " + (char) ('A' + aleatorio.nextInt(26))
+                    + aleatorio.nextInt(1000);
+            String descripcion = "Para " + elegir(aleatorio, USOS) + " y " + elegir(aleatorio, USOS)
+                    + ", " + elegir(aleatorio, ADJETIVOS) + ", " + (1 + aleatorio.nextInt(500)) + " kg";
+            indice.indexarSiFalta(id, nombre, descripcion);
+        }
+    }
+
+    private static String elegir(Random aleatorio, String[] palabras) {
+        return palabras[aleatorio.nextInt(palabras.length)];
+    }
+
+    @Benchmark
+    public List<Long> buscar() {
+        return indice.buscar(consulta, RESULTADOS);
+    }
+}
@@ -0,0 +1,103 @@
+package maximacarga.com.rendimiento;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import maximacarga.com.entidades.Pedido;
+import maximacarga.com.entidades.Producto;
+import maximacarga.com.entidades.Usuario;
+import maximacarga.com.repositorios.PedidoRepositorio;
+import maximacarga.com.repositorios.ProductoRepositorio;
+import maximacarga.com.repositorios.UsuarioRepositorio;
+import maximacarga.com.servicios.InformeVentasServicio;
+import maximacarga.com.servicios.PedidoServicio;
+import maximacarga.com.servicios.ProductoServicio;
+
+/**
+ * PedidoServicio.crearPedido sin base de datos: validación del carrito,
+ * cálculo de subtotales y total con BigDecimal y creación de las líneas.
+ * Los repositorios son mocks que devuelven datos fijos, así que se mide
+ * el trabajo en Java y no los viajes a MariaDB.
+ *
+ * Los mocks son stubOnly para que Mockito no guarde cada llamada
+ * (con millones de iteraciones se quedaría sin memoria).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CrearPedidoBenchmark {
+
+    /** Productos distintos en el carrito. */
+    @Param({"1", "10", "100"})
+    private int lineas;
+
+    private PedidoServicio pedidoServicio;
+    private Map<String, Integer> carrito;
+    private Pedido guardado;
+
+    @Setup
+    public void preparar() {
+        Usuario usuario = new Usuario("600000000", "benchmark@maximacarga.com", "CLIENTE", "x");
+        usuario.setIdUsuario(1L);
+
+        List<Producto> productos = new ArrayList<>();
+        carrito = new HashMap<>();
+        for (long id = 1; id <= lineas; id++) {
+            Producto producto = new Producto();
+            producto.setIdProducto(id);
+            producto.setNombre("Producto " + id);
+            producto.setPrecio(9.95 + id);
+            producto.setStock(1_000_000);
+            productos.add(producto);
+            carrito.put(String.valueOf(id), 3);
+        }
+
+        UsuarioRepositorio usuarioRepo = mock(UsuarioRepositorio.class, withSettings().stubOnly());
+        ProductoRepositorio productoRepo = mock(ProductoRepositorio.class, withSettings().stubOnly());
+        PedidoRepositorio pedidoRepo = mock(PedidoRepositorio.class, withSettings().stubOnly());
+        ProductoServicio productoServicio = mock(ProductoServicio.class, withSettings().stubOnly());
+        InformeVentasServicio informeVentas = mock(InformeVentasServicio.class, withSettings().stubOnly());
+
+        when(usuarioRepo.findById(anyLong())).thenReturn(Optional.of(usuario));
+        when(productoRepo.findAllById(any())).thenReturn(productos);
+        when(productoRepo.descontarStock(any())).thenReturn(true);
+        when(pedidoRepo.save(any())).thenAnswer(invocacion -> {
+            guardado = invocacion.getArgument(0);
+            return guardado;
+        });
+
+        pedidoServicio = new PedidoServicio(pedidoRepo, usuarioRepo, productoRepo, productoServicio, informeVentas);
+    }
+
+    @Benchmark
+    public void crearPedido(Blackhole bh) {
+        pedidoServicio.crearPedido(1L, carrito);
+        bh.consume(guardado.getTotal());
+    }
+}
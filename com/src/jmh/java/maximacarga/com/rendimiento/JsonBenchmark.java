@@ -0,0 +1,121 @@
+package maximacarga.com.rendimiento;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import maximacarga.com.dto.PedidoDTO;
+import maximacarga.com.entidades.Pedido;
+import maximacarga.com.entidades.Pedido.EstadoPedido;
+import maximacarga.com.entidades.PedidoLinea;
+import maximacarga.com.entidades.Producto;
+import maximacarga.com.entidades.Usuario;
+
+/**
+ * Serialización a JSON de los listados que devuelven los controladores:
+ * productos, pedidos (la entidad y el PedidoDTO de /api/pedidos) y usuarios.
+ * El ObjectMapper se construye como el de Spring Boot (módulos de fechas
+ * incluidos).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    private static final int LINEAS_POR_PEDIDO = 5;
+
+    /** Elementos de cada lista. */
+    @Param({"10", "1000"})
+    private int tamanio;
+
+    private ObjectMapper mapper;
+    private List<Producto> productos;
+    private List<Pedido> pedidos;
+    private List<PedidoDTO> pedidosDto;
+    private List<Usuario> usuarios;
+
+    @Setup
+    public void preparar() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+
+        productos = new ArrayList<>();
+        pedidos = new ArrayList<>();
+        usuarios = new ArrayList<>();
+        for (long i = 1; i <= tamanio; i++) {
+            Producto producto = new Producto();
+            producto.setIdProducto(i);
+            producto.setNombre("Producto " + i);
+            producto.setDescripcion("Descripción del producto " + i + " con algo de texto de relleno");
+            producto.setPrecio(9.95 + i);
+            producto.setStock(100);
+            productos.add(producto);
+
+            Pedido pedido = new Pedido();
+            pedido.setUsuarioId(i);
+            pedido.setFecha(LocalDateTime.now());
+            pedido.setEstado(EstadoPedido.ENVIADO);
+            BigDecimal total = BigDecimal.ZERO;
+            for (long j = 1; j <= LINEAS_POR_PEDIDO; j++) {
+                PedidoLinea linea = new PedidoLinea();
+                linea.setPedido(pedido);
+                linea.setProductoId(j);
+                linea.setNombreProducto("Producto " + j);
+                linea.setPrecioUnitario(new BigDecimal("12.50"));
+                linea.setCantidad(2);
+                linea.setSubtotal(new BigDecimal("25.00"));
+                pedido.getLineas().add(linea);
+                total = total.add(linea.getSubtotal());
+            }
+            pedido.setSubtotal(total);
+            pedido.setTotal(total);
+            pedidos.add(pedido);
+
+            Usuario usuario = new Usuario(i, "600000000", "usuario" + i + "@maximacarga.com", "CLIENTE",
+                    "$2a$10$hash", "Nombre", "Apellidos", LocalDate.of(1990, 1, 1));
+            usuarios.add(usuario);
+        }
+        pedidosDto = pedidos.stream().map(PedidoDTO::de).toList();
+    }
+
+    @Benchmark
+    public byte[] productos() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(productos);
+    }
+
+    @Benchmark
+    public byte[] pedidos() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(pedidos);
+    }
+
+    @Benchmark
+    public byte[] pedidosDto() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(pedidosDto);
+    }
+
+    @Benchmark
+    public byte[] usuarios() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(usuarios);
+    }
+}
@@ -0,0 +1,262 @@
+package maximacarga.com.rendimiento;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.auth0.jwt.JWT;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Prueba de carga de GET /api/productos y POST /api/pedidos/{idUsuario}
+ * para comparar el modo normal (pool de hilos de Tomcat) con el perfil
+ * "virtual" (hilos virtuales, Java 21+).
+ *
+ * Se lanza contra servidores ya arrancados, normalmente la misma versión
+ * en dos puertos, uno con --spring.profiles.active=virtual:
+ *
+ *   mvn -Pjmh test-compile exec:exec@carga \
+ *       -Dcarga.args="--url=plataforma=http://localhost:8083 --url=virtual=http://localhost:8084
+ *                    --correo=carga@maximacarga.com --contrasena=... --producto=1 --producto=2 ..."
+ *
+ * El usuario tiene que estar activado y los productos necesitan stock de
+ * sobra: cada pedido descuenta una unidad. Los pedidos se reparten por
+ * turnos entre los productos indicados; con uno solo, todos esperarían
+ * el bloqueo de la misma fila en MariaDB y se mediría esa espera en vez
+ * del modelo de hilos. Conviene indicar al menos tantos como conexiones
+ * tiene el pool de Hikari. Los dos servidores deberían usar la
+ * misma base de datos y el mismo tamaño de pool de Hikari para que la
+ * comparación sea justa.
+ *
+ * Cada escenario tiene un calentamiento que no se mide y después
+ * "concurrencia" clientes que repiten la petición en bucle (cada uno
+ * espera su respuesta antes de mandar la siguiente) durante "segundos".
+ * Se imprime el rendimiento (peticiones por segundo) y los percentiles
+ * de latencia de las respuestas 2xx.
+ *
+ * Opciones (--clave=valor):
+ *   url           nombre=http://host:puerto, se puede repetir (obligatoria)
+ *   correo        usuario con el que se hace login (obligatoria)
+ *   contrasena    contraseña del usuario (obligatoria)
+ *   producto      ID de un producto de los pedidos, se puede repetir (obligatoria)
+ *   concurrencia  clientes a la vez (400)
+ *   segundos      duración de cada medida (30)
+ *   calentamiento segundos de calentamiento (10)
+ */
+public final class PruebaCarga {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private record Servidor(String nombre, URI base) {}
+
+    private record Resultado(String servidor, String escenario, long correctas, long errores,
+                             double porSegundo, long[] latenciasMicros) {
+
+        double percentilMs(double percentil) {
+            if (latenciasMicros.length == 0) {
+                return 0;
+            }
+            int indice = (int) Math.ceil(percentil * latenciasMicros.length) - 1;
+            return latenciasMicros[Math.max(0, indice)] / 1000.0;
+        }
+    }
+
+    /** Latencias de un cliente, sin cajas de Long. */
+    private static final class Medidas {
+        private long[] latencias = new long[1024];
+        private int total;
+        private long errores;
+
+        void correcta(long micros) {
+            if (total == latencias.length) {
+                latencias = Arrays.copyOf(latencias, total * 2);
+            }
+            latencias[total++] = micros;
+        }
+    }
+
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final int concurrencia;
+    private final Duration duracion;
+    private final Duration calentamiento;
+
+    private PruebaCarga(int concurrencia, Duration duracion, Duration calentamiento) {
+        this.concurrencia = concurrencia;
+        this.duracion = duracion;
+        this.calentamiento = calentamiento;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, List<String>> opciones = leerOpciones(args);
+        List<Servidor> servidores = new ArrayList<>();
+        for (String url : obligatoria(opciones, "url")) {
+            int igual = url.indexOf('=');
+            servidores.add(igual < 0
+                    ? new Servidor(url, URI.create(url))
+                    : new Servidor(url.substring(0, igual), URI.create(url.substring(igual + 1))));
+        }
+        String correo = obligatoria(opciones, "correo").get(0);
+        String contrasena = obligatoria(opciones, "contrasena").get(0);
+        List<String> productos = obligatoria(opciones, "producto");
+
+        PruebaCarga prueba = new PruebaCarga(
+                Integer.parseInt(opcional(opciones, "concurrencia", "400")),
+                Duration.ofSeconds(Long.parseLong(opcional(opciones, "segundos", "30"))),
+                Duration.ofSeconds(Long.parseLong(opcional(opciones, "calentamiento", "10"))));
+
+        List<Resultado> resultados = new ArrayList<>();
+        for (Servidor servidor : servidores) {
+            String token = prueba.login(servidor, correo, contrasena);
+            long idUsuario = JWT.decode(token).getClaim("id").asLong();
+
+            HttpRequest catalogo = HttpRequest.newBuilder(servidor.base().resolve("/api/productos"))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            List<HttpRequest> pedidos = new ArrayList<>();
+            for (String producto : productos) {
+                pedidos.add(HttpRequest.newBuilder(servidor.base().resolve("/api/pedidos/" + idUsuario))
+                        .timeout(Duration.ofSeconds(30))
+                        .header("Authorization", "Bearer " + token)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"" + producto + "\":1}"))
+                        .build());
+            }
+
+            resultados.add(prueba.medir(servidor, "GET /api/productos", List.of(catalogo)));
+            resultados.add(prueba.medir(servidor, "POST /api/pedidos/{idUsuario}", pedidos));
+        }
+
+        System.out.printf("%nConcurrencia %d, %d s por medida%n%n", prueba.concurrencia, prueba.duracion.toSeconds());
+        System.out.printf("%-12s %-32s %10s %8s %10s %9s %9s %9s %9s%n",
+                "servidor", "escenario", "correctas", "errores", "pet/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Resultado r : resultados) {
+            System.out.printf("%-12s %-32s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    r.servidor(), r.escenario(), r.correctas(), r.errores(), r.porSegundo(),
+                    r.percentilMs(0.50), r.percentilMs(0.95), r.percentilMs(0.99), r.percentilMs(1.0));
+        }
+    }
+
+    private String login(Servidor servidor, String correo, String contrasena) throws IOException, InterruptedException {
+        String cuerpo = JSON.writeValueAsString(Map.of("correoElectronico", correo, "contrasena", contrasena));
+        HttpResponse<String> respuesta = cliente.send(
+                HttpRequest.newBuilder(servidor.base().resolve("/api/usuarios/login"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(cuerpo))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        JsonNode token = JSON.readTree(respuesta.body()).get("token");
+        if (respuesta.statusCode() != 200 || token == null) {
+            throw new IllegalStateException("No se pudo hacer login en " + servidor.base() + ": " + respuesta.body());
+        }
+        return token.asText();
+    }
+
+    private Resultado medir(Servidor servidor, String escenario, List<HttpRequest> peticiones)
+            throws InterruptedException, ExecutionException {
+        System.out.printf("%s: %s...%n", servidor.nombre(), escenario);
+        ejecutar(peticiones, calentamiento);
+
+        long inicio = System.nanoTime();
+        List<Medidas> medidas = ejecutar(peticiones, duracion);
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        int total = medidas.stream().mapToInt(m -> m.total).sum();
+        long[] latencias = new long[total];
+        int posicion = 0;
+        long errores = 0;
+        for (Medidas m : medidas) {
+            System.arraycopy(m.latencias, 0, latencias, posicion, m.total);
+            posicion += m.total;
+            errores += m.errores;
+        }
+        Arrays.sort(latencias);
+        return new Resultado(servidor.nombre(), escenario, total, errores, total / segundos, latencias);
+    }
+
+    /**
+     * Lanza "concurrencia" clientes que mandan las peticiones por turnos
+     * hasta que pasa el tiempo indicado.
+     */
+    private List<Medidas> ejecutar(List<HttpRequest> peticiones, Duration tiempo)
+            throws InterruptedException, ExecutionException {
+        ExecutorService hilos = Executors.newFixedThreadPool(concurrencia);
+        AtomicInteger turno = new AtomicInteger();
+        long fin = System.nanoTime() + tiempo.toNanos();
+        try {
+            List<Future<Medidas>> clientes = new ArrayList<>();
+            for (int i = 0; i < concurrencia; i++) {
+                clientes.add(hilos.submit(() -> {
+                    Medidas m = new Medidas();
+                    while (System.nanoTime() < fin) {
+                        HttpRequest peticion = peticiones.get(
+                                Math.floorMod(turno.getAndIncrement(), peticiones.size()));
+                        long antes = System.nanoTime();
+                        try {
+                            int estado = cliente.send(peticion, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (estado >= 200 && estado < 300) {
+                                m.correcta(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - antes));
+                            } else {
+                                m.errores++;
+                            }
+                        } catch (IOException e) {
+                            m.errores++;
+                        }
+                    }
+                    return m;
+                }));
+            }
+            List<Medidas> medidas = new ArrayList<>();
+            for (Future<Medidas> c : clientes) {
+                medidas.add(c.get());
+            }
+            return medidas;
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    private static Map<String, List<String>> leerOpciones(String[] args) {
+        Map<String, List<String>> opciones = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Opción no válida: " + arg + " (se espera --clave=valor)");
+            }
+            int igual = arg.indexOf('=');
+            opciones.computeIfAbsent(arg.substring(2, igual), k -> new ArrayList<>()).add(arg.substring(igual + 1));
+        }
+        return opciones;
+    }
+
+    private static List<String> obligatoria(Map<String, List<String>> opciones, String clave) {
+        List<String> valores = opciones.get(clave);
+        if (valores == null) {
+            throw new IllegalArgumentException("Falta la opción --" + clave);
+        }
+        return valores;
+    }
+
+    private static String opcional(Map<String, List<String>> opciones, String clave, String porDefecto) {
+        List<String> valores = opciones.get(clave);
+        return valores == null ? porDefecto : valores.get(0);
+    }
+}
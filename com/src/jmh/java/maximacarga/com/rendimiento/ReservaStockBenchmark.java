@@ -0,0 +1,141 @@
+package maximacarga.com.rendimiento;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import maximacarga.com.repositorios.ProductoStockRepositorioImpl;
+
+/**
+ * Reserva de stock de PedidoServicio.crearPedido con 8 hilos a la vez:
+ * el UPDATE condicional de ProductoStockRepositorioImpl frente al bloqueo
+ * pesimista clásico (SELECT ... FOR UPDATE de los productos del carrito,
+ * comprobación en Java y un UPDATE por producto).
+ *
+ * Cada operación es una transacción con un carrito de 3 productos al azar
+ * entre "productos": con 10 casi todos los pedidos se pisan, con 1000 casi
+ * ninguno. Por defecto usa H2 en memoria; para medir con InnoDB:
+ *   -Djmh.args="ReservaStockBenchmark -p url=jdbc:mariadb://127.0.0.1:3307/maximacarga_bench -p usuario=root"
+ * La tabla productos de esa base se borra y se vuelve a crear, así que
+ * se exige que el nombre de la base contenga "bench".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(ReservaStockBenchmark.HILOS)
+@Fork(1)
+public class ReservaStockBenchmark {
+
+    static final int HILOS = 8;
+
+    private static final int PRODUCTOS_POR_PEDIDO = 3;
+
+    @Param({ "10", "1000" })
+    private int productos;
+
+    @Param("jdbc:h2:mem:reserva;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=30000")
+    private String url;
+
+    @Param("sa")
+    private String usuario;
+
+    @Param("")
+    private String contrasena;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transaccion;
+    private ProductoStockRepositorioImpl stockRepositorio;
+
+    @Setup
+    public void preparar() {
+        if (!url.startsWith("jdbc:h2:mem:") && !url.contains("bench")) {
+            throw new IllegalArgumentException("Usa una base de datos de pruebas (con \"bench\" en el nombre)");
+        }
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(usuario);
+        dataSource.setPassword(contrasena);
+        dataSource.setMaximumPoolSize(HILOS);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS productos");
+        jdbcTemplate.execute("CREATE TABLE productos (idProducto BIGINT PRIMARY KEY, stock INT)");
+        List<Object[]> filas = new ArrayList<>();
+        for (long id = 1; id <= productos; id++) {
+            filas.add(new Object[] { id, Integer.MAX_VALUE });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO productos (idProducto, stock) VALUES (?, ?)", filas);
+
+        transaccion = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        stockRepositorio = new ProductoStockRepositorioImpl(jdbcTemplate);
+    }
+
+    @TearDown
+    public void cerrar() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Boolean updateCondicional() {
+        SortedMap<Long, Integer> carrito = carrito();
+        return transaccion.execute(estado -> stockRepositorio.descontarStock(carrito));
+    }
+
+    @Benchmark
+    public Boolean selectForUpdate() {
+        SortedMap<Long, Integer> carrito = carrito();
+        return transaccion.execute(estado -> {
+            String ids = String.join(", ", Collections.nCopies(carrito.size(), "?"));
+            List<Integer> stocks = jdbcTemplate.queryForList(
+                    "SELECT stock FROM productos WHERE idProducto IN (" + ids + ") ORDER BY idProducto FOR UPDATE",
+                    Integer.class, carrito.keySet().toArray());
+
+            int i = 0;
+            for (Integer cantidad : carrito.values()) {
+                if (stocks.get(i++) < cantidad) {
+                    estado.setRollbackOnly();
+                    return false;
+                }
+            }
+            List<Object[]> cambios = new ArrayList<>();
+            carrito.forEach((id, cantidad) -> cambios.add(new Object[] { cantidad, id }));
+            jdbcTemplate.batchUpdate("UPDATE productos SET stock = stock - ? WHERE idProducto = ?", cambios);
+            return true;
+        });
+    }
+
+    private SortedMap<Long, Integer> carrito() {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        SortedMap<Long, Integer> carrito = new TreeMap<>();
+        while (carrito.size() < PRODUCTOS_POR_PEDIDO) {
+            carrito.put(1L + aleatorio.nextInt(productos), 1 + aleatorio.nextInt(3));
+        }
+        return carrito;
+    }
+}
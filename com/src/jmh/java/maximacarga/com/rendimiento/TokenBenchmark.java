@@ -0,0 +1,54 @@
+package maximacarga.com.rendimiento;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import maximacarga.com.entidades.Usuario;
+import maximacarga.com.servicios.TokenServicio;
+
+/**
+ * Generar un JWT en el login y verificarlo en cada petición a /api/*
+ * (FiltroJwt), con el mismo TokenServicio que usa la aplicación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenBenchmark {
+
+    private TokenServicio tokenServicio;
+    private Usuario usuario;
+    private String token;
+
+    @Setup
+    public void preparar() {
+        tokenServicio = new TokenServicio("secreto-de-benchmark", 3_600_000L);
+        usuario = new Usuario("600000000", "benchmark@maximacarga.com", "CLIENTE", "x");
+        usuario.setIdUsuario(1L);
+        token = tokenServicio.generarToken(usuario);
+    }
+
+    @Benchmark
+    public String generarToken() {
+        return tokenServicio.generarToken(usuario);
+    }
+
+    @Benchmark
+    public DecodedJWT verificarToken() {
+        return tokenServicio.verificar(token);
+    }
+}
@@ -0,0 +1,57 @@
+package maximacarga.com.config;
+
+import java.util.List;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+/**
+ * Cuenta las sentencias JDBC que ejecuta el hilo actual.
+ *
+ * Se engancha al DataSource (MetricasConfig lo envuelve con
+ * datasource-proxy), así que cuenta todo lo que va a la base de datos:
+ * Hibernate, JdbcTemplate y Flyway. Cada ejecución cuenta como una,
+ * también un lote JDBC completo, porque lo que cuesta es el viaje
+ * de ida y vuelta a MariaDB.
+ *
+ * Igual que EstadisticasHibernate, solo cuenta entre iniciar() y
+ * terminar(), que llama FiltroMetricasPeticion.
+ */
+public class ContadorSentencias implements QueryExecutionListener {
+
+    /** Atributo de la petición con el número de sentencias ejecutadas (Long). */
+    public static final String ATRIBUTO = ContadorSentencias.class.getName() + ".sentencias";
+
+    private static final ThreadLocal<long[]> ACTUAL = new ThreadLocal<>();
+
+    /**
+     * Empieza a contar en el hilo actual.
+     */
+    public static void iniciar() {
+        ACTUAL.set(new long[1]);
+    }
+
+    /**
+     * Deja de contar en el hilo actual.
+     *
+     * @return Sentencias ejecutadas desde iniciar(), o 0 si no se estaba contando.
+     */
+    public static long terminar() {
+        long[] actual = ACTUAL.get();
+        ACTUAL.remove();
+        return actual == null ? 0 : actual[0];
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long[] actual = ACTUAL.get();
+        if (actual != null) {
+            actual[0]++;
+        }
+    }
+}
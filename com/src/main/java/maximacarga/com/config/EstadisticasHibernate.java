@@ -0,0 +1,93 @@
+package maximacarga.com.config;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.internal.StatisticsImpl;
+import org.hibernate.stat.spi.StatisticsFactory;
+
+/**
+ * Estadísticas de Hibernate que, además de los totales globales
+ * (los que publica hibernate-micrometer), cuentan lo que hace la
+ * petición en curso: consultas, entidades cargadas y colecciones
+ * cargadas de forma perezosa. Un número alto de colecciones o de
+ * entidades por petición es la señal típica de un N+1.
+ *
+ * Los contadores son por hilo: FiltroMetricasPeticion los abre al
+ * empezar la petición y los recoge al terminar. Fuera de una petición
+ * (tareas programadas) no se cuenta nada.
+ */
+public class EstadisticasHibernate extends StatisticsImpl {
+
+    /**
+     * Lo que ha hecho Hibernate durante una petición.
+     */
+    public static final class Contadores {
+        private long consultas;
+        private long entidades;
+        private long colecciones;
+
+        public long getConsultas() { return consultas; }
+        public long getEntidades() { return entidades; }
+        public long getColecciones() { return colecciones; }
+    }
+
+    private static final ThreadLocal<Contadores> ACTUALES = new ThreadLocal<>();
+
+    /** Para la propiedad hibernate.stats.factory. */
+    public static final StatisticsFactory FABRICA = EstadisticasHibernate::new;
+
+    public EstadisticasHibernate(SessionFactoryImplementor sessionFactory) {
+        super(sessionFactory);
+    }
+
+    /**
+     * Empieza a contar en el hilo actual.
+     */
+    public static Contadores iniciar() {
+        Contadores contadores = new Contadores();
+        ACTUALES.set(contadores);
+        return contadores;
+    }
+
+    /**
+     * Deja de contar en el hilo actual.
+     */
+    public static void terminar() {
+        ACTUALES.remove();
+    }
+
+    @Override
+    public void queryExecuted(String hql, int rows, long time) {
+        super.queryExecuted(hql, rows, time);
+        Contadores contadores = ACTUALES.get();
+        if (contadores != null) {
+            contadores.consultas++;
+        }
+    }
+
+    @Override
+    public void loadEntity(String entityName) {
+        super.loadEntity(entityName);
+        Contadores contadores = ACTUALES.get();
+        if (contadores != null) {
+            contadores.entidades++;
+        }
+    }
+
+    @Override
+    public void fetchEntity(String entityName) {
+        super.fetchEntity(entityName);
+        Contadores contadores = ACTUALES.get();
+        if (contadores != null) {
+            contadores.entidades++;
+        }
+    }
+
+    @Override
+    public void fetchCollection(String role) {
+        super.fetchCollection(role);
+        Contadores contadores = ACTUALES.get();
+        if (contadores != null) {
+            contadores.colecciones++;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package maximacarga.com.config;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import maximacarga.com.servicios.TokenServicio;
+
+/**
+ * Filtro que comprueba el token JWT de las peticiones a /api/**.
+ *
+ * Lee la cabecera "Authorization: Bearer ...", verifica el token con
+ * TokenServicio (sin ir a la base de datos) y deja el token decodificado
+ * en el atributo TokenServicio.ATRIBUTO_TOKEN de la petición.
+ * Las rutas públicas (login, registro, recuperación, catálogo e imágenes)
+ * pasan sin token; el resto responde 401 si falta o no es válido.
+ * En una ruta pública un token caducado o no válido se ignora, para que
+ * el cliente pueda volver a hacer login aunque aún lo envíe.
+ */
+public class FiltroJwt extends OncePerRequestFilter {
+
+    private static final String PREFIJO = "Bearer ";
+
+    private record RutaPublica(HttpMethod metodo, String patron) {}
+
+    private static final List<RutaPublica> RUTAS_PUBLICAS = List.of(
+            new RutaPublica(HttpMethod.POST, "/api/usuarios/login"),
+            new RutaPublica(HttpMethod.POST, "/api/usuarios/registrarUsuario"),
+            new RutaPublica(HttpMethod.POST, "/api/usuarios/registroUsuario"),
+            new RutaPublica(HttpMethod.PUT, "/api/usuarios/activarCuenta"),
+            new RutaPublica(HttpMethod.POST, "/api/usuarios/recuperar"),
+            new RutaPublica(HttpMethod.PUT, "/api/usuarios/restablecerContrasenia"),
+            new RutaPublica(HttpMethod.GET, "/api/usuarios/*/foto"),
+            new RutaPublica(HttpMethod.GET, "/api/usuarios/*/foto/miniatura"),
+            new RutaPublica(HttpMethod.GET, "/api/productos/**"));
+
+    private final AntPathMatcher matcher = new AntPathMatcher();
+    private final TokenServicio tokenServicio;
+
+    public FiltroJwt(TokenServicio tokenServicio) {
+        this.tokenServicio = tokenServicio;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+
+        String cabecera = request.getHeader(HttpHeaders.AUTHORIZATION);
+
+        if (cabecera != null && cabecera.startsWith(PREFIJO)) {
+            try {
+                request.setAttribute(TokenServicio.ATRIBUTO_TOKEN,
+                        tokenServicio.verificar(cabecera.substring(PREFIJO.length())));
+            } catch (JWTVerificationException e) {
+                if (!esPublica(request)) {
+                    rechazar(response, "Token inválido o expirado");
+                    return;
+                }
+            }
+        } else if (!esPublica(request)) {
+            rechazar(response, "Token requerido");
+            return;
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    private boolean esPublica(HttpServletRequest request) {
+        if (HttpMethod.OPTIONS.matches(request.getMethod())) {
+            return true; // preflight CORS
+        }
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        return RUTAS_PUBLICAS.stream()
+                .anyMatch(r -> r.metodo().matches(request.getMethod()) && matcher.match(r.patron(), ruta));
+    }
+
+    private void rechazar(HttpServletResponse response, String mensaje) throws IOException {
+        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+        response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().write(mensaje);
+    }
+}
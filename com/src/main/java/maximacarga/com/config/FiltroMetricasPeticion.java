@@ -0,0 +1,92 @@
+package maximacarga.com.config;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Registra por endpoint cuánto trabajo de base de datos hace cada petición:
+ * - maximacarga.peticion.sentencias: sentencias JDBC enviadas a MariaDB.
+ * - maximacarga.peticion.consultas: consultas HQL/SQL de Hibernate.
+ * - maximacarga.peticion.entidades: entidades cargadas.
+ * - maximacarga.peticion.colecciones: colecciones cargadas de forma perezosa.
+ *
+ * Las etiquetas method y uri son las mismas que las de http.server.requests
+ * (la uri es el patrón del endpoint, no la ruta con los IDs).
+ *
+ * Si una petición pasa del presupuesto de sentencias se avisa en el log:
+ * suele ser un N+1 nuevo. El número también queda en el atributo
+ * ContadorSentencias.ATRIBUTO para que los tests lo comprueben.
+ */
+public class FiltroMetricasPeticion extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(FiltroMetricasPeticion.class);
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry registro;
+    private final long presupuestoSentencias;
+
+    /**
+     * @param presupuestoSentencias Sentencias por petición a partir de las que se avisa.
+     */
+    public FiltroMetricasPeticion(MeterRegistry registro, long presupuestoSentencias) {
+        this.registro = registro;
+        this.presupuestoSentencias = presupuestoSentencias;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        EstadisticasHibernate.Contadores contadores = EstadisticasHibernate.iniciar();
+        ContadorSentencias.iniciar();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            long sentencias = ContadorSentencias.terminar();
+            EstadisticasHibernate.terminar();
+            registrar(request, sentencias, contadores);
+        }
+    }
+
+    private void registrar(HttpServletRequest request, long sentencias,
+                           EstadisticasHibernate.Contadores contadores) {
+        Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = patron != null ? patron.toString() : "UNKNOWN";
+        String metodo = request.getMethod();
+
+        request.setAttribute(ContadorSentencias.ATRIBUTO, sentencias);
+        if (sentencias > presupuestoSentencias) {
+            log.warn("{} {} ejecutó {} sentencias SQL (presupuesto {}); posible N+1",
+                    metodo, uri, sentencias, presupuestoSentencias);
+        }
+
+        resumen("maximacarga.peticion.sentencias", "Sentencias JDBC por petición", metodo, uri)
+                .record(sentencias);
+        resumen("maximacarga.peticion.consultas", "Consultas de Hibernate por petición", metodo, uri)
+                .record(contadores.getConsultas());
+        resumen("maximacarga.peticion.entidades", "Entidades cargadas por petición", metodo, uri)
+                .record(contadores.getEntidades());
+        resumen("maximacarga.peticion.colecciones", "Colecciones cargadas de forma perezosa por petición", metodo, uri)
+                .record(contadores.getColecciones());
+    }
+
+    private DistributionSummary resumen(String nombre, String descripcion, String metodo, String uri) {
+        return DistributionSummary.builder(nombre)
+                .description(descripcion)
+                .tag("method", metodo)
+                .tag("uri", uri)
+                .publishPercentiles(PERCENTILES)
+                .register(registro);
+    }
+}
@@ -0,0 +1,45 @@
+package maximacarga.com.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hilos de la aplicación.
+ *
+ * Con el perfil "virtual" en Java 21 o superior, Tomcat y las tareas
+ * programadas usan hilos virtuales (ver application-virtual.properties). El pool de BCrypt
+ * (VerificacionContraseniaServicio) sigue con hilos normales porque
+ * es trabajo de CPU, no de espera.
+ */
+@Configuration
+public class HilosConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(HilosConfig.class);
+
+    /** Primera versión de Java con hilos virtuales definitivos. */
+    private static final int JAVA_HILOS_VIRTUALES = 21;
+
+    /**
+     * Deja en el log con qué hilos se atienden las peticiones. Spring Boot
+     * ignora spring.threads.virtual.enabled en Java 17 sin avisar.
+     */
+    @Bean
+    public ApplicationRunner comprobarHilosVirtuales(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtuales) {
+        return args -> {
+            int version = Runtime.version().feature();
+            if (!virtuales) {
+                log.info("Peticiones atendidas con el pool de hilos de Tomcat");
+            } else if (version < JAVA_HILOS_VIRTUALES) {
+                log.warn("spring.threads.virtual.enabled=true pero se ejecuta con Java {}; "
+                        + "hacen falta Java {} o superior. Se usan hilos normales", version, JAVA_HILOS_VIRTUALES);
+            } else {
+                log.info("Peticiones y tareas programadas atendidas con hilos virtuales");
+            }
+        };
+    }
+}
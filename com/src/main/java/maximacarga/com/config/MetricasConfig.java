@@ -0,0 +1,81 @@
+package maximacarga.com.config;
+
+import javax.sql.DataSource;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+/**
+ * Métricas de la aplicación (se ven en /actuator/metrics y /actuator/prometheus).
+ *
+ * Spring Boot ya registra por su cuenta:
+ * - http.server.requests: latencia de cada endpoint.
+ * - hikaricp.connections.*: conexiones activas, libres, pendientes y
+ *   tiempo de espera del pool.
+ * - hibernate.*: totales de consultas, cargas y caché de Hibernate
+ *   (con hibernate.generate_statistics=true).
+ *
+ * Aquí se añaden los tiempos de los métodos de los servicios marcados
+ * con @Timed y el trabajo de base de datos por petición (sentencias JDBC
+ * y consultas, entidades y colecciones de Hibernate). Los percentiles se
+ * configuran en application.properties.
+ */
+@Configuration
+public class MetricasConfig {
+
+    /**
+     * Hace que @Timed funcione en cualquier bean, no solo en los controladores.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registro) {
+        return new TimedAspect(registro);
+    }
+
+    /**
+     * Sustituye las estadísticas de Hibernate por las que además cuentan por petición.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer estadisticasHibernate() {
+        return propiedades -> propiedades.put(AvailableSettings.STATS_BUILDER, EstadisticasHibernate.FABRICA);
+    }
+
+    /**
+     * Envuelve el DataSource (el pool de Hikari) para contar las sentencias
+     * con ContadorSentencias. El proxy deja llegar a Hikari con unwrap,
+     * así que sus métricas siguen funcionando.
+     * Es static porque los BeanPostProcessor se crean antes que el resto.
+     */
+    @Bean
+    public static BeanPostProcessor contadorSentencias() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String nombre) {
+                if (bean instanceof DataSource dataSource) {
+                    return ProxyDataSourceBuilder.create(nombre, dataSource)
+                            .listener(new ContadorSentencias())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<FiltroMetricasPeticion> filtroMetricasPeticion(
+            MeterRegistry registro,
+            @Value("${maximacarga.metricas.sentencias-por-peticion:20}") long presupuestoSentencias) {
+        FilterRegistrationBean<FiltroMetricasPeticion> filtro =
+                new FilterRegistrationBean<>(new FiltroMetricasPeticion(registro, presupuestoSentencias));
+        filtro.addUrlPatterns("/api/*");
+        return filtro;
+    }
+}
@@ -0,0 +1,37 @@
+package maximacarga.com.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import maximacarga.com.servicios.NotificadorRecuperacion;
+import maximacarga.com.servicios.NotificadorRecuperacionCorreo;
+import maximacarga.com.servicios.NotificadorRecuperacionLog;
+
+/**
+ * Envío de los tokens de recuperación de contraseña.
+ *
+ * Spring Boot solo crea el JavaMailSender si hay spring.mail.host; sin él
+ * (en desarrollo) los tokens se escriben en el log.
+ */
+@Configuration
+public class NotificacionesConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificacionesConfig.class);
+
+    @Bean
+    public NotificadorRecuperacion notificadorRecuperacion(
+            ObjectProvider<JavaMailSender> correo,
+            @Value("${maximacarga.correo.remitente:no-responder@maximacarga.com}") String remitente) {
+        JavaMailSender enviador = correo.getIfAvailable();
+        if (enviador == null) {
+            log.warn("Sin spring.mail.host: los tokens de recuperación se escriben en el log, no se envían");
+            return new NotificadorRecuperacionLog();
+        }
+        return new NotificadorRecuperacionCorreo(enviador, remitente);
+    }
+}
@@ -0,0 +1,13 @@
+package maximacarga.com.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Activa las tareas programadas (@Scheduled), como la purga
+ * nocturna de PurgaUsuariosServicio.
+ */
+@Configuration
+@EnableScheduling
+public class ProgramacionConfig {
+}
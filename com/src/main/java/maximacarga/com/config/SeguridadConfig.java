@@ -1,16 +1,37 @@
 package maximacarga.com.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import maximacarga.com.servicios.TokenServicio;
+
 @Configuration
 public class SeguridadConfig {
+	/**
+	 * Codificador de contraseñas.
+	 * El coste (log2 de las rondas) se configura con
+	 * maximacarga.seguridad.bcrypt.coste; cada punto más duplica el tiempo
+	 * de cada login. Al arrancar se mide y se registra en el log el tiempo
+	 * de un hash con el coste elegido para poder ajustarlo al hardware.
+	 */
 	@Bean
-    public PasswordEncoder passwordEncoder() {
+    public PasswordEncoder passwordEncoder(@Value("${maximacarga.seguridad.bcrypt.coste:10}") int coste) {
         // BCrypt es el más usado y el mismo que usa tu compañero
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(coste);
+    }
+
+    /**
+     * Registra el filtro que verifica el token JWT en /api/*.
+     */
+    @Bean
+    public FilterRegistrationBean<FiltroJwt> filtroJwt(TokenServicio tokenServicio) {
+        FilterRegistrationBean<FiltroJwt> registro = new FilterRegistrationBean<>(new FiltroJwt(tokenServicio));
+        registro.addUrlPatterns("/api/*");
+        return registro;
     }
 
 }
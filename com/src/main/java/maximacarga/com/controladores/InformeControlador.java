@@ -0,0 +1,105 @@
+package maximacarga.com.controladores;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import jakarta.servlet.http.HttpServletRequest;
+import maximacarga.com.dto.ProductoVendido;
+import maximacarga.com.dto.VentasDia;
+import maximacarga.com.servicios.InformeVentasServicio;
+import maximacarga.com.servicios.TokenServicio;
+
+/**
+ * Informes de ventas del panel de administración.
+ * Se sirven desde los agregados diarios, así que el coste depende
+ * del número de días del periodo y no del número de pedidos.
+ * Solo los administradores pueden usarlos (403 para el resto).
+ */
+@RestController
+@RequestMapping("/api/informes")
+public class InformeControlador {
+
+    private final InformeVentasServicio informeServicio;
+
+    public InformeControlador(InformeVentasServicio informeServicio) {
+        this.informeServicio = informeServicio;
+    }
+
+    /**
+     * Método que sirve para obtener la serie diaria de ventas.
+     *
+     * @param desde Primer día incluido (ISO, ej. 2025-01-01).
+     * @param hasta Último día incluido.
+     * @return Un elemento por día del periodo, también los días sin pedidos.
+     */
+    @GetMapping("/ventas")
+    public ResponseEntity<List<VentasDia>> ventasPorDia(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            HttpServletRequest request) {
+        if (!TokenServicio.esAdministrador(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(informeServicio.ventasPorDia(desde, hasta));
+    }
+
+    /**
+     * Método que sirve para obtener los productos más vendidos de un periodo.
+     *
+     * @param desde Primer día incluido.
+     * @param hasta Último día incluido.
+     * @param limite Número de productos (por defecto 10, máximo 100).
+     * @return Productos ordenados por unidades vendidas.
+     */
+    @GetMapping("/productos-mas-vendidos")
+    public ResponseEntity<List<ProductoVendido>> productosMasVendidos(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) Integer limite,
+            HttpServletRequest request) {
+        if (!TokenServicio.esAdministrador(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(informeServicio.productosMasVendidos(desde, hasta, limite));
+    }
+
+    /**
+     * Método que sirve para recalcular los agregados de un periodo desde
+     * los pedidos (por ejemplo, tras corregir pedidos a mano en la base de datos).
+     *
+     * @param desde Primer día incluido.
+     * @param hasta Último día incluido.
+     * @return 200 OK cuando termina.
+     */
+    @PostMapping("/recalcular")
+    public ResponseEntity<Void> recalcular(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            HttpServletRequest request) {
+        if (!TokenServicio.esAdministrador(request)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        informeServicio.recalcular(desde, hasta);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Periodo no válido (hasta anterior a desde o demasiado largo).
+     *
+     * @return 400 Bad Request con el mensaje del error.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> datosNoValidos(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+}
@@ -1,11 +1,19 @@
 package maximacarga.com.controladores;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
-import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -15,18 +23,32 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import maximacarga.com.dto.PaginaResultado;
+import maximacarga.com.dto.PedidoDTO;
 import maximacarga.com.entidades.Pedido;
+import maximacarga.com.servicios.ExportacionPedidosServicio;
 import maximacarga.com.servicios.PedidoServicio;
+import maximacarga.com.servicios.TokenServicio;
 
 @RestController
 @RequestMapping("/api/pedidos")
 public class PedidoControlador {
 
     private final PedidoServicio pedidoServicio;
+    private final ExportacionPedidosServicio exportacionServicio;
+
+    // Cada exportación ocupa una conexión del pool mientras se envía
+    private final Semaphore exportaciones;
 
-    // Constructor que inyecta el servicio de pedidos
-    public PedidoControlador(PedidoServicio pedidoServicio) {
+    // Constructor que inyecta los servicios de pedidos
+    public PedidoControlador(PedidoServicio pedidoServicio,
+                             ExportacionPedidosServicio exportacionServicio,
+                             @Value("${maximacarga.exportacion.simultaneas:2}") int exportacionesSimultaneas) {
         this.pedidoServicio = pedidoServicio;
+        this.exportacionServicio = exportacionServicio;
+        this.exportaciones = new Semaphore(exportacionesSimultaneas);
     }
 
     /**
@@ -51,11 +73,95 @@ public class PedidoControlador {
      * @return Lista de pedidos registrados en el sistema.
      */
     @GetMapping
-    public List<Pedido> listarPedidos() {
+    public List<PedidoDTO> listarPedidos() {
         return pedidoServicio.listarTodos();
     }
 
 
+    /**
+     * Método que sirve para buscar pedidos de forma paginada (panel de administración).
+     * Todos los filtros son opcionales.
+     *
+     * @param estado Estado del pedido.
+     * @param usuarioId ID del usuario.
+     * @param desde Fecha mínima incluida (ISO, ej. 2025-01-01T00:00:00).
+     * @param hasta Fecha máxima excluida.
+     * @param pagina Número de página, empezando en 0.
+     * @param tamanio Tamaño de página (máximo 100).
+     * @param orden Campo de ordenación: fecha, total, estado o id.
+     * @param direccion "asc" o "desc".
+     * @return Página de pedidos o 400 si la ordenación no es válida.
+     */
+    @GetMapping("/buscar")
+    public ResponseEntity<PaginaResultado<PedidoDTO>> buscarPedidos(
+            @RequestParam(required = false) Pedido.EstadoPedido estado,
+            @RequestParam(required = false) Long usuarioId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(required = false) Integer tamanio,
+            @RequestParam(defaultValue = "fecha") String orden,
+            @RequestParam(defaultValue = "desc") String direccion) {
+
+        if (!PedidoServicio.CAMPOS_ORDEN.contains(orden)
+                || !("asc".equalsIgnoreCase(direccion) || "desc".equalsIgnoreCase(direccion))) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(pedidoServicio.buscar(estado, usuarioId, desde, hasta,
+                pagina, tamanio, orden, "asc".equalsIgnoreCase(direccion)));
+    }
+
+
+    /**
+     * Método que sirve para exportar el histórico de pedidos con sus líneas
+     * (panel de administración, solo administradores). La respuesta se
+     * escribe a medida que se leen los pedidos, así que no se carga la
+     * exportación en memoria. Todos los filtros son opcionales.
+     *
+     * Como cada exportación mantiene una conexión a la base de datos hasta
+     * que termina, solo se atienden maximacarga.exportacion.simultaneas a
+     * la vez; las demás reciben 429 Too Many Requests.
+     *
+     * @param formato "csv" (una fila por línea de pedido) o "ndjson" (un pedido por línea).
+     * @param estado Estado del pedido.
+     * @param usuarioId ID del usuario.
+     * @param desde Fecha mínima incluida (ISO, ej. 2025-01-01T00:00:00).
+     * @param hasta Fecha máxima excluida.
+     */
+    @GetMapping("/exportar")
+    public void exportarPedidos(
+            @RequestParam(defaultValue = "csv") String formato,
+            @RequestParam(required = false) Pedido.EstadoPedido estado,
+            @RequestParam(required = false) Long usuarioId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        if (!TokenServicio.esAdministrador(request)) {
+            response.setStatus(HttpStatus.FORBIDDEN.value());
+            return;
+        }
+
+        ExportacionPedidosServicio.Formato tipo = ExportacionPedidosServicio.Formato.de(formato);
+
+        if (!exportaciones.tryAcquire()) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "30");
+            return;
+        }
+        try {
+            response.setContentType(tipo.getTipoContenido());
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename("pedidos." + tipo.getExtension()).build().toString());
+            exportacionServicio.exportar(tipo, estado, usuarioId, desde, hasta, response.getOutputStream());
+        } finally {
+            exportaciones.release();
+        }
+    }
+
+
     /**
      * Método que sirve para obtener todos los pedidos de un usuario concreto.
      *
@@ -63,7 +169,7 @@ public class PedidoControlador {
      * @return Lista de pedidos asociados a ese usuario.
      */
     @GetMapping("/usuario/{idUsuario}")
-    public List<Pedido> listarPedidosPorUsuario(@PathVariable Long idUsuario) {
+    public List<PedidoDTO> listarPedidosPorUsuario(@PathVariable Long idUsuario) {
         return pedidoServicio.listarPorUsuario(idUsuario);
     }
     
@@ -106,5 +212,26 @@ public class PedidoControlador {
 
         return ResponseEntity.ok().build();
     }
+
+    /**
+     * Datos del pedido no válidos (carrito vacío, cantidades, IDs...).
+     *
+     * @return 400 Bad Request con el mensaje del error.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> datosNoValidos(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    /**
+     * El pedido no se puede aplicar en el estado actual
+     * (stock insuficiente, pedido ya finalizado...).
+     *
+     * @return 409 Conflict con el mensaje del error.
+     */
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<String> conflicto(IllegalStateException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+    }
     
 }
@@ -1,34 +1,58 @@
 package maximacarga.com.controladores;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import maximacarga.com.dto.PaginaCatalogo;
+import maximacarga.com.dto.ProductoResumen;
+import maximacarga.com.dto.ResultadoImportacion;
 import maximacarga.com.entidades.Producto;
+import maximacarga.com.servicios.ImportacionProductosServicio;
 import maximacarga.com.servicios.ProductoServicio;
 
 @RestController
 @RequestMapping("/api/productos")
 public class ProductoControlador {
 
+    /**
+     * Las imágenes de producto son públicas: se pueden guardar en caché
+     * compartidas una hora y después se revalidan con el ETag.
+     */
+    private static final CacheControl CACHE_IMAGENES = CacheControl.maxAge(Duration.ofHours(1)).cachePublic();
+
     private final ProductoServicio productoServicio;
+    private final ImportacionProductosServicio importacionServicio;
 
-    // Constructor que inyecta el servicio de productos
-    public ProductoControlador(ProductoServicio productoServicio) {
+    // Constructor que inyecta los servicios de productos
+    public ProductoControlador(ProductoServicio productoServicio,
+                               ImportacionProductosServicio importacionServicio) {
         this.productoServicio = productoServicio;
+        this.importacionServicio = importacionServicio;
     }
 
     /**
      * Método que sirve para crear un nuevo producto.
-     * Valida que nombre, precio y stock sean correctos antes de guardarlo.
+     * Valida que nombre, precio y stock sean correctos antes de guardarlo
+     * (las mismas reglas que la importación masiva, ver ProductoServicio.validar).
      *
      * @param producto Producto recibido en el body de la petición.
      * @return 200 OK si se crea correctamente,
@@ -37,21 +61,31 @@ public class ProductoControlador {
     @PostMapping
     public ResponseEntity<String> crearProducto(@RequestBody Producto producto) {
 
-        if (producto.getNombre() == null || producto.getNombre().isBlank()) {
-            return ResponseEntity.badRequest().body("El nombre es obligatorio");
-        }
-
-        if (producto.getPrecio() == null || producto.getPrecio() < 0) {
-            return ResponseEntity.badRequest().body("El precio no es válido");
-        }
-
-        if (producto.getStock() == null || producto.getStock() < 0) {
-            return ResponseEntity.badRequest().body("El stock no es válido");
-        }
+        ProductoServicio.validar(producto);
 
         productoServicio.crearProducto(producto);
         return ResponseEntity.ok("success");
     }
+    /**
+     * Método que sirve para importar muchos productos a la vez desde un CSV
+     * (text/csv, con cabecera) o un array JSON (application/json).
+     * El cuerpo se lee a medida que llega y se guarda por lotes; las filas
+     * con idProducto actualizan ese producto y las demás crean uno nuevo.
+     *
+     * @param request Petición con el fichero en el cuerpo.
+     * @return Resultado de cada fila (creada, actualizada o error y su motivo).
+     */
+    @PostMapping(value = "/importar", consumes = { MediaType.APPLICATION_JSON_VALUE, "text/csv" })
+    public ResultadoImportacion importarProductos(HttpServletRequest request) throws IOException {
+        ImportacionProductosServicio.Formato formato =
+                MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()))
+                        ? ImportacionProductosServicio.Formato.JSON
+                        : ImportacionProductosServicio.Formato.CSV;
+        try (InputStream entrada = request.getInputStream()) {
+            return importacionServicio.importar(formato, entrada);
+        }
+    }
+
     /**
      * Método que sirve para eliminar un producto por su ID.
      *
@@ -79,22 +113,101 @@ public class ProductoControlador {
         return productoServicio.listarProductos();
     }
     
+    /**
+     * Método que sirve para obtener el catálogo paginado por cursor.
+     * Se pide la primera página sin "despuesDe" y las siguientes con
+     * el valor "siguiente" de la respuesta anterior.
+     *
+     * @param despuesDe ID del último producto recibido.
+     * @param tamanio Tamaño de página (máximo 100).
+     * @param vista "resumen" (id, nombre, precio, stock) o "completa".
+     * @return Página del catálogo o 400 si la vista no es válida.
+     */
+    @GetMapping("/pagina")
+    public ResponseEntity<PaginaCatalogo<?>> listarProductosPaginados(
+            @RequestParam(required = false) Long despuesDe,
+            @RequestParam(required = false) Integer tamanio,
+            @RequestParam(defaultValue = "resumen") String vista) {
+
+        if ("resumen".equalsIgnoreCase(vista)) {
+            return ResponseEntity.ok(productoServicio.listarResumenPaginado(despuesDe, tamanio));
+        }
+        if ("completa".equalsIgnoreCase(vista)) {
+            return ResponseEntity.ok(productoServicio.listarPaginado(despuesDe, tamanio));
+        }
+        return ResponseEntity.badRequest().build();
+    }
+
+    /**
+     * Método que sirve para buscar productos por texto en el nombre y la
+     * descripción. No distingue mayúsculas ni acentos y cada palabra puede
+     * ser el principio de una palabra del producto ("torn" encuentra "Tornillo").
+     *
+     * @param q Texto buscado.
+     * @param limite Número máximo de resultados (por defecto 20, máximo 100).
+     * @return Resúmenes de los productos, de más a menos relevante.
+     */
+    @GetMapping("/buscar")
+    public List<ProductoResumen> buscarProductos(@RequestParam String q,
+                                                 @RequestParam(required = false) Integer limite) {
+        return productoServicio.buscar(q, limite);
+    }
+
     /**
      * Método que sirve para obtener la imagen de un producto.
+     * Es el único punto que lee la imagen; el catálogo solo devuelve
+     * la URL en el campo urlImagen.
+     * Usa el hash de la imagen como ETag: si el navegador o un proxy
+     * ya la tienen, responde 304 sin abrir el fichero. Admite Range
+     * para descargas parciales o reanudadas.
      *
      * @param id ID del producto.
-     * @return Imagen en formato byte[] o 404 si no existe.
      */
     @GetMapping("/{id}/imagen")
-    public ResponseEntity<byte[]> verImagen(@PathVariable Long id) {
-        Producto p = productoServicio.obtenerPorId(id); // crea este método si no lo tienes
-        if (p == null || p.getImagenProducto() == null) {
-            return ResponseEntity.notFound().build();
-        }
+    public void verImagen(@PathVariable Long id, HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+        RespuestasImagen.enviar(request, response,
+                productoServicio.obtenerMetadatosImagen(id),
+                CACHE_IMAGENES,
+                () -> productoServicio.ficheroImagen(id),
+                () -> productoServicio.obtenerImagen(id));
+    }
+
+    /**
+     * Método que sirve para obtener la miniatura de un producto.
+     * Es la que deben usar las rejillas del catálogo (campo urlMiniatura).
+     *
+     * @param id ID del producto.
+     */
+    @GetMapping("/{id}/imagen/miniatura")
+    public void verMiniatura(@PathVariable Long id, HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        RespuestasImagen.enviarMiniatura(request, response,
+                productoServicio.obtenerMetadatosImagen(id),
+                CACHE_IMAGENES,
+                () -> productoServicio.ficheroMiniatura(id),
+                () -> productoServicio.obtenerImagen(id));
+    }
 
-        return ResponseEntity.ok()
-            .header("Content-Type", "image/jpeg") // o image/png si subes png
-            .body(p.getImagenProducto());
+    /**
+     * Método que sirve para subir la imagen de un producto como multipart
+     * (campo "imagen"). La parte se lee por bloques desde el fichero
+     * temporal del servidor, sin cargarla entera en memoria.
+     *
+     * @param id ID del producto.
+     * @param imagen Fichero de imagen (JPEG, PNG, GIF o BMP).
+     * @return 200 OK si se guarda, 404 si el producto no existe
+     *         o 400 si el fichero no es una imagen admitida.
+     */
+    @PostMapping(value = "/{id}/imagen", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<String> subirImagen(@PathVariable Long id,
+                                              @RequestParam("imagen") MultipartFile imagen) throws IOException {
+        try (InputStream datos = imagen.getInputStream()) {
+            if (!productoServicio.guardarImagen(id, datos)) {
+                return ResponseEntity.notFound().build();
+            }
+        }
+        return ResponseEntity.ok("success");
     }
 
     /**
@@ -122,5 +235,16 @@ public class ProductoControlador {
 
         return productoServicio.actualizarProducto(id, productoActualizado);
     }
+
+    /**
+     * Datos del producto o imagen no válidos (formato no admitido,
+     * dañada o demasiado grande).
+     *
+     * @return 400 Bad Request con el mensaje del error.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> datosNoValidos(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
     }
     
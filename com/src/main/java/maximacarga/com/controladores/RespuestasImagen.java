@@ -0,0 +1,215 @@
+package maximacarga.com.controladores;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import maximacarga.com.dto.MetadatosImagen;
+import maximacarga.com.servicios.AlmacenImagenes;
+
+/**
+ * Escribe las respuestas de los endpoints de imágenes.
+ *
+ * Primero se miran los metadatos (hash y fecha) sin abrir la imagen.
+ * Si el navegador ya tiene esa versión (If-None-Match / If-Modified-Since)
+ * se responde 304. Si no, el fichero se copia a la respuesta con
+ * FileChannel.transferTo (o con sendfile si Tomcat lo admite), así que
+ * la memoria usada no depende del tamaño de la imagen. Se admite una
+ * petición Range de un solo rango para descargas parciales.
+ */
+final class RespuestasImagen {
+
+    /** Las imágenes anteriores a la detección de tipo eran todas JPEG. */
+    private static final String TIPO_POR_DEFECTO = "image/jpeg";
+
+    // Atributos con los que Tomcat envía un fichero con sendfile
+    // cuando el servlet termina (mismo mecanismo que su DefaultServlet)
+    private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FICHERO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    /** Por debajo de este tamaño sendfile no compensa (el mismo umbral que Tomcat). */
+    private static final long SENDFILE_MINIMO = 48 * 1024;
+
+    private RespuestasImagen() {}
+
+    /**
+     * Envía el original de una imagen.
+     *
+     * @param fichero Ruta del original en el almacén.
+     * @param legado Bytes de las imágenes antiguas guardadas en la tabla.
+     */
+    static void enviar(HttpServletRequest request, HttpServletResponse response,
+                       MetadatosImagen metadatos, CacheControl cacheControl,
+                       Supplier<Path> fichero, Supplier<byte[]> legado) throws IOException {
+        if (metadatos == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (metadatos.getTipoContenido() == null) {
+            enviarLegado(request, response, metadatos, cacheControl, legado);
+            return;
+        }
+        enviarFichero(request, response, "\"" + metadatos.getHash() + "\"",
+                metadatos.getFechaModificacion(), metadatos.getTipoContenido(), cacheControl, fichero.get());
+    }
+
+    /**
+     * Igual que enviar, pero para la miniatura. Las imágenes antiguas
+     * (sin tipo detectado) no tienen miniatura y se envía el original.
+     */
+    static void enviarMiniatura(HttpServletRequest request, HttpServletResponse response,
+                                MetadatosImagen metadatos, CacheControl cacheControl,
+                                Supplier<Path> miniatura, Supplier<byte[]> legado) throws IOException {
+        if (metadatos == null || metadatos.getTipoContenido() == null) {
+            enviar(request, response, metadatos, cacheControl, null, legado);
+            return;
+        }
+        // El ETag tiene que ser distinto del del original
+        enviarFichero(request, response, "\"" + metadatos.getHash() + "-miniatura\"",
+                metadatos.getFechaModificacion(), AlmacenImagenes.TIPO_MINIATURA, cacheControl, miniatura.get());
+    }
+
+    private static void enviarFichero(HttpServletRequest request, HttpServletResponse response,
+                                      String etag, Instant fecha, String tipo,
+                                      CacheControl cacheControl, Path ruta) throws IOException {
+        long ultimaModificacion = fecha == null ? -1 : fecha.toEpochMilli();
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(etag, ultimaModificacion)) {
+            return;
+        }
+
+        FileChannel canal;
+        try {
+            canal = FileChannel.open(ruta, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        try (canal) {
+            long tamanio = canal.size();
+            long inicio = 0;
+            long longitud = tamanio;
+
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+            HttpRange rango = rangoPedido(request, etag, ultimaModificacion);
+            if (rango != null) {
+                inicio = rango.getRangeStart(tamanio);
+                longitud = rango.getRangeEnd(tamanio) - inicio + 1;
+                if (inicio >= tamanio || longitud <= 0) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + tamanio);
+                    response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + inicio + "-" + (inicio + longitud - 1) + "/" + tamanio);
+            }
+
+            response.setContentType(tipo);
+            response.setHeader("X-Content-Type-Options", "nosniff");
+            response.setContentLengthLong(longitud);
+
+            if (longitud >= SENDFILE_MINIMO && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTADO))) {
+                request.setAttribute(SENDFILE_FICHERO, ruta.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_INICIO, inicio);
+                request.setAttribute(SENDFILE_FIN, inicio + longitud);
+                return;
+            }
+
+            WritableByteChannel salida = Channels.newChannel(response.getOutputStream());
+            long enviados = 0;
+            while (enviados < longitud) {
+                long n = canal.transferTo(inicio + enviados, longitud - enviados, salida);
+                if (n <= 0) {
+                    break; // el fichero se ha truncado mientras se enviaba
+                }
+                enviados += n;
+            }
+        }
+    }
+
+    /**
+     * Devuelve el rango a servir, o null para enviar el fichero completo:
+     * sin cabecera Range, con varios rangos, con un Range mal formado o
+     * con un If-Range que ya no corresponde a esta versión.
+     */
+    private static HttpRange rangoPedido(HttpServletRequest request, String etag, long ultimaModificacion) {
+        String cabecera = request.getHeader(HttpHeaders.RANGE);
+        if (cabecera == null || !siRangoCoincide(request, etag, ultimaModificacion)) {
+            return null;
+        }
+        List<HttpRange> rangos;
+        try {
+            rangos = HttpRange.parseRanges(cabecera);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return rangos.size() == 1 ? rangos.get(0) : null;
+    }
+
+    private static boolean siRangoCoincide(HttpServletRequest request, String etag, long ultimaModificacion) {
+        String siRango = request.getHeader(HttpHeaders.IF_RANGE);
+        if (siRango == null) {
+            return true;
+        }
+        if (siRango.startsWith("\"") || siRango.startsWith("W/")) {
+            return siRango.equals(etag);
+        }
+        try {
+            long fecha = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return ultimaModificacion > 0 && ultimaModificacion / 1000 == fecha / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Imágenes guardadas en la propia tabla antes del almacén en disco.
+     * Son pequeñas y se envían completas, sin Range.
+     */
+    private static void enviarLegado(HttpServletRequest request, HttpServletResponse response,
+                                     MetadatosImagen metadatos, CacheControl cacheControl,
+                                     Supplier<byte[]> legado) throws IOException {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+
+        // Las guardadas antes de calcular el hash no tienen ETag
+        if (metadatos.getHash() != null) {
+            long ultimaModificacion = metadatos.getFechaModificacion() == null
+                    ? -1 : metadatos.getFechaModificacion().toEpochMilli();
+            if (new ServletWebRequest(request, response)
+                    .checkNotModified("\"" + metadatos.getHash() + "\"", ultimaModificacion)) {
+                return;
+            }
+        }
+
+        byte[] datos = legado.get();
+        if (datos == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setContentType(TIPO_POR_DEFECTO);
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setContentLength(datos.length);
+        response.getOutputStream().write(datos);
+    }
+}
@@ -1,18 +1,25 @@
 package maximacarga.com.controladores;
 
-import java.sql.Date;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -21,12 +28,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
 
-import com.auth0.jwt.JWT;
-import com.auth0.jwt.algorithms.Algorithm;
-
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import maximacarga.com.dto.UsuarioResumen;
 import maximacarga.com.entidades.Usuario;
+import maximacarga.com.servicios.TokenServicio;
 import maximacarga.com.servicios.UsuarioServicio;
+import maximacarga.com.servicios.VerificacionContraseniaServicio;
 
 /**
  * Clase controladora del usuario
@@ -36,41 +46,36 @@ import maximacarga.com.servicios.UsuarioServicio;
 @RequestMapping("/api")
 public class UsuarioControlador {
 
+    /**
+     * Las fotos de perfil solo se guardan en la caché del navegador
+     * y se revalidan siempre con el ETag (un cambio se ve al momento).
+     */
+    private static final CacheControl CACHE_FOTOS = CacheControl.noCache().cachePrivate();
+
     private final UsuarioServicio usuarioServicio;
 
     @Autowired
     private PasswordEncoder contraseniaMetodo;
 
-    private final long EXPIRATION_TIME = 3_600_000; // 1h
-    private final String SECRET_KEY = "altair_006!";
+    private final TokenServicio tokenServicio;
+
+    private final VerificacionContraseniaServicio verificacionContrasenia;
 
     @Autowired
-    public UsuarioControlador(UsuarioServicio usuarioServicio) {
+    public UsuarioControlador(UsuarioServicio usuarioServicio, TokenServicio tokenServicio,
+                              VerificacionContraseniaServicio verificacionContrasenia) {
         this.usuarioServicio = usuarioServicio;
-    }
-
-    /**
-     * Genera un token JWT para autenticación.
-     * Incluye email como subject y fecha de expiración.
-     */
-    private String generateToken(Usuario usuario) {
-        long now = System.currentTimeMillis();
-        Date expirationDate = new Date(now + EXPIRATION_TIME);
-
-        return JWT.create()
-                .withSubject(usuario.getCorreoElectronico())
-                .withIssuedAt(new Date(now))
-                .withExpiresAt(expirationDate)
-                .sign(Algorithm.HMAC256(SECRET_KEY));
+        this.tokenServicio = tokenServicio;
+        this.verificacionContrasenia = verificacionContrasenia;
     }
     
     /**
      * Obtiene un usuario por su ID.
      */
     @GetMapping("/usuarios/{id}")
-    public ResponseEntity<Usuario> obtenerUsuarioPorId(@PathVariable Long id) {
+    public ResponseEntity<UsuarioResumen> obtenerUsuarioPorId(@PathVariable Long id) {
 
-        Usuario usuario = usuarioServicio.buscarPorId(id);
+        UsuarioResumen usuario = usuarioServicio.buscarResumenPorId(id);
 
         if (usuario == null) {
             return ResponseEntity.notFound().build();
@@ -197,20 +202,32 @@ public class UsuarioControlador {
     /**
      * Realiza el login del usuario.
      * Valida credenciales y devuelve un token JWT si son correctas.
+     * La comprobación BCrypt se hace en el pool de VerificacionContraseniaServicio,
+     * así que el hilo de Tomcat queda libre mientras tanto.
+     * Si el pool está saturado responde 503 con Retry-After.
      */
     @PostMapping("/usuarios/login")
-    public Map<String, String> login(@RequestBody Usuario loginRequest) {
+    public CompletableFuture<ResponseEntity<Map<String, String>>> login(@RequestBody Usuario loginRequest) {
         String email = loginRequest.getCorreoElectronico();
         String rawPassword = loginRequest.getContrasena();
 
        
         Optional<Usuario> usuario = usuarioServicio.buscarPorCorreoElectronico(email);
 
-        if (usuario.isPresent() && contraseniaMetodo.matches(rawPassword, usuario.get().getContrasena())) {
-            String token = generateToken(usuario.get());
-            return Map.of("token", token);
-        } else {
-            return Map.of("error", "Credenciales incorrectas");
+        if (usuario.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.ok(Map.of("error", "Credenciales incorrectas")));
+        }
+
+        try {
+            return verificacionContrasenia.comprobar(rawPassword, usuario.get().getContrasena())
+                    .thenApply(correcta -> correcta
+                            ? ResponseEntity.ok(Map.of("token", tokenServicio.generarToken(usuario.get())))
+                            : ResponseEntity.ok(Map.of("error", "Credenciales incorrectas")));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", "Servidor ocupado, inténtalo de nuevo")));
         }
     }
     
@@ -219,8 +236,8 @@ public class UsuarioControlador {
      * Obtiene los detalles de un usuario por su email.
      */
     @GetMapping("/usuarios/detalles")
-	public ResponseEntity<Usuario> obtenerDetallesUsuario(@RequestParam("email") String email) {
-	    Optional<Usuario> usuarioOptional = usuarioServicio.buscarPorCorreoElectronico(email);
+	public ResponseEntity<UsuarioResumen> obtenerDetallesUsuario(@RequestParam("email") String email) {
+	    Optional<UsuarioResumen> usuarioOptional = usuarioServicio.buscarResumenPorCorreoElectronico(email);
 	    if (usuarioOptional.isPresent()) {
 	        return ResponseEntity.ok(usuarioOptional.get());
 	    } else {
@@ -247,75 +264,82 @@ public class UsuarioControlador {
 
     /**
      * Devuelve la foto de perfil del usuario.
+     * Es el único punto que lee la foto; se copia del fichero a la
+     * respuesta sin cargarla en memoria y admite Range.
+     * Responde 304 sin abrirla si el navegador ya tiene la misma versión (ETag).
      */
     @GetMapping("/usuarios/{id}/foto")
-    public ResponseEntity<byte[]> obtenerFoto(@PathVariable Long id) {
-
-        Usuario usuario = usuarioServicio.buscarPorId(id);
-
-        if (usuario == null || usuario.getFoto() == null) {
-            return ResponseEntity.notFound().build();
-        }
-
-        return ResponseEntity.ok()
-                .header("Content-Type", "image/jpeg")
-                .body(usuario.getFoto());
+    public void obtenerFoto(@PathVariable Long id, HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        RespuestasImagen.enviar(request, response,
+                usuarioServicio.obtenerMetadatosFoto(id),
+                CACHE_FOTOS,
+                () -> usuarioServicio.ficheroFoto(id),
+                () -> usuarioServicio.obtenerFoto(id));
     }
     
     
+    /**
+     * Devuelve la miniatura de la foto de perfil (para listados y cabeceras).
+     */
+    @GetMapping("/usuarios/{id}/foto/miniatura")
+    public void obtenerMiniaturaFoto(@PathVariable Long id, HttpServletRequest request,
+                                     HttpServletResponse response) throws IOException {
+        RespuestasImagen.enviarMiniatura(request, response,
+                usuarioServicio.obtenerMetadatosFoto(id),
+                CACHE_FOTOS,
+                () -> usuarioServicio.ficheroMiniaturaFoto(id),
+                () -> usuarioServicio.obtenerFoto(id));
+    }
+
+
     /**
      * Permite subir o actualizar la foto de perfil del usuario.
+     * El cuerpo se lee por bloques desde la petición, sin cargarlo en memoria.
      */
     @PutMapping("/usuarios/subirFoto/{id}")
-    public ResponseEntity<?> subirFoto(@PathVariable Long id,
-                                       @RequestBody byte[] imagen) {
-
-        Usuario usuario = usuarioServicio.buscarPorId(id);
+    public ResponseEntity<?> subirFoto(@PathVariable Long id, InputStream imagen) {
 
-        if (usuario == null) {
+        if (!usuarioServicio.guardarFoto(id, imagen)) {
             return ResponseEntity.notFound().build();
         }
 
-        usuario.setFoto(imagen);
-        usuarioServicio.actualizarUsuario(usuario);
-
         return ResponseEntity.ok("Foto actualizada");
     }
-    
-    
-    /**
-     * Genera un token para recuperación de contraseña.
-     */
-    @PostMapping("/usuarios/recuperar")
-    public ResponseEntity<String> recuperar(@RequestParam String correoElectronico) {
 
-        boolean generado =
-                usuarioServicio.generarTokenRecuperacion(correoElectronico);
 
-        if (!generado) {
-            return ResponseEntity.notFound().build();
+    /**
+     * Permite subir la foto de perfil como multipart (campo "imagen").
+     */
+    @PostMapping(value = "/usuarios/{id}/foto", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> subirFotoMultipart(@PathVariable Long id,
+                                                @RequestParam("imagen") MultipartFile imagen) throws IOException {
+
+        try (InputStream datos = imagen.getInputStream()) {
+            if (!usuarioServicio.guardarFoto(id, datos)) {
+                return ResponseEntity.notFound().build();
+            }
         }
 
-        return ResponseEntity.ok("Token generado");
+        return ResponseEntity.ok("Foto actualizada");
     }
-
+    
     
     /**
-     * Obtiene el token de recuperación asociado a un correo.
+     * Genera un token para recuperación de contraseña y lo envía al correo.
+     * El token nunca se devuelve en la respuesta, y en la base de datos
+     * se guarda su hash.
      */
-    @GetMapping("/usuarios/tokenRecuperacion")
-    public ResponseEntity<String> obtenerToken(@RequestParam String correoElectronico) {
-
-        String token =
-                usuarioServicio.obtenerTokenRecuperacion(correoElectronico);
+    @PostMapping("/usuarios/recuperar")
+    public ResponseEntity<String> recuperar(@RequestParam String correoElectronico) {
 
-        if (token == null) {
+        if (!usuarioServicio.generarTokenRecuperacion(correoElectronico)) {
             return ResponseEntity.notFound().build();
         }
 
-        return ResponseEntity.ok(token);
+        return ResponseEntity.ok("Token enviado");
     }
-    
+
     
     /**
      * Restablece la contraseña utilizando un token válido.
@@ -340,5 +364,12 @@ public class UsuarioControlador {
         return ResponseEntity.ok("Contraseña actualizada");
     }
 
-    
+
+    /**
+     * Foto no válida (formato no admitido, dañada o demasiado grande).
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> datosNoValidos(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
 }
@@ -0,0 +1,20 @@
+package maximacarga.com.dto;
+
+import java.time.Instant;
+
+/**
+ * Metadatos de una imagen guardada (producto o foto de usuario).
+ *
+ * Se leen con una proyección que no incluye los bytes, para poder
+ * responder 304 Not Modified sin cargar la imagen.
+ */
+public interface MetadatosImagen {
+
+    /** SHA-256 en hexadecimal del contenido; se usa como ETag. */
+    String getHash();
+
+    Instant getFechaModificacion();
+
+    /** Tipo MIME detectado al subir; null en las imágenes antiguas (JPEG). */
+    String getTipoContenido();
+}
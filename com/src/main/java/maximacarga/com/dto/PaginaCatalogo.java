@@ -0,0 +1,14 @@
+package maximacarga.com.dto;
+
+import java.util.List;
+
+/**
+ * Página del catálogo paginado por cursor (keyset).
+ *
+ * @param elementos Productos de la página, ordenados por ID.
+ * @param siguiente ID a pasar como "despuesDe" para pedir la siguiente
+ *                  página, o null si no hay más.
+ * @param tamanio   Tamaño de página aplicado tras el límite máximo.
+ */
+public record PaginaCatalogo<T>(List<T> elementos, Long siguiente, int tamanio) {
+}
@@ -0,0 +1,23 @@
+package maximacarga.com.dto;
+
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+
+/**
+ * Página de resultados numerada.
+ *
+ * @param contenido       Elementos de la página.
+ * @param pagina          Número de página (empieza en 0).
+ * @param tamanio         Tamaño de página aplicado.
+ * @param totalElementos  Total de elementos que cumplen el filtro.
+ * @param totalPaginas    Total de páginas.
+ */
+public record PaginaResultado<T>(List<T> contenido, int pagina, int tamanio,
+                                 long totalElementos, int totalPaginas) {
+
+    public static <T> PaginaResultado<T> de(Page<T> page) {
+        return new PaginaResultado<>(page.getContent(), page.getNumber(), page.getSize(),
+                page.getTotalElements(), page.getTotalPages());
+    }
+}
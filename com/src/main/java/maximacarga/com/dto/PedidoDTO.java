@@ -0,0 +1,30 @@
+package maximacarga.com.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import maximacarga.com.entidades.Pedido;
+import maximacarga.com.entidades.Pedido.EstadoPedido;
+
+/**
+ * Pedido con sus líneas tal y como se devuelve en las respuestas.
+ *
+ * Mantiene los mismos campos que la entidad Pedido en JSON, pero se
+ * construye dentro de la transacción y no depende de la carga perezosa.
+ */
+public record PedidoDTO(Long id,
+                        Long usuarioId,
+                        LocalDateTime fecha,
+                        LocalDateTime fechaEntrega,
+                        BigDecimal subtotal,
+                        BigDecimal total,
+                        EstadoPedido estado,
+                        List<PedidoLineaDTO> lineas) {
+
+    public static PedidoDTO de(Pedido pedido) {
+        return new PedidoDTO(pedido.getId(), pedido.getUsuarioId(), pedido.getFecha(),
+                pedido.getFechaEntrega(), pedido.getSubtotal(), pedido.getTotal(), pedido.getEstado(),
+                pedido.getLineas().stream().map(PedidoLineaDTO::de).toList());
+    }
+}
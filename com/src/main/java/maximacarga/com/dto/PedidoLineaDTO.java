@@ -0,0 +1,21 @@
+package maximacarga.com.dto;
+
+import java.math.BigDecimal;
+
+import maximacarga.com.entidades.PedidoLinea;
+
+/**
+ * Línea de pedido tal y como se devuelve en las respuestas.
+ */
+public record PedidoLineaDTO(Long id,
+                             Long productoId,
+                             String nombreProducto,
+                             BigDecimal precioUnitario,
+                             Integer cantidad,
+                             BigDecimal subtotal) {
+
+    public static PedidoLineaDTO de(PedidoLinea linea) {
+        return new PedidoLineaDTO(linea.getId(), linea.getProductoId(), linea.getNombreProducto(),
+                linea.getPrecioUnitario(), linea.getCantidad(), linea.getSubtotal());
+    }
+}
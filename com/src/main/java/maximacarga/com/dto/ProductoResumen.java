@@ -0,0 +1,31 @@
+package maximacarga.com.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Proyección ligera de un producto para el catálogo.
+ *
+ * Spring Data solo selecciona estas columnas, así que
+ * nunca se carga la entidad completa.
+ */
+public interface ProductoResumen {
+
+    Long getIdProducto();
+
+    String getNombre();
+
+    Double getPrecio();
+
+    Integer getStock();
+
+    @JsonIgnore
+    Boolean getTieneImagen();
+
+    /**
+     * URL de la miniatura para la rejilla del catálogo, o null si no tiene imagen.
+     */
+    default String getUrlMiniatura() {
+        return Boolean.TRUE.equals(getTieneImagen())
+                ? "/api/productos/" + getIdProducto() + "/imagen/miniatura" : null;
+    }
+}
@@ -0,0 +1,14 @@
+package maximacarga.com.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Ventas de un producto en un periodo (productos más vendidos).
+ *
+ * @param productoId  ID del producto.
+ * @param nombre      Nombre actual del producto, o null si ya no existe.
+ * @param unidades    Unidades vendidas, sin los pedidos cancelados.
+ * @param importe     Suma de los subtotales de sus líneas.
+ */
+public record ProductoVendido(Long productoId, String nombre, long unidades, BigDecimal importe) {
+}
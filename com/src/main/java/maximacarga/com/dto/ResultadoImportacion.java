@@ -0,0 +1,26 @@
+package maximacarga.com.dto;
+
+import java.util.List;
+
+/**
+ * Informe de una importación masiva de productos.
+ *
+ * @param creados       Filas insertadas como productos nuevos.
+ * @param actualizados  Filas que actualizaron un producto existente.
+ * @param errores       Filas no importadas.
+ * @param filas         Resultado de cada fila, en el orden del fichero.
+ */
+public record ResultadoImportacion(long creados, long actualizados, long errores, List<Fila> filas) {
+
+    public enum Resultado { CREADO, ACTUALIZADO, ERROR }
+
+    /**
+     * Resultado de una fila.
+     *
+     * @param fila        Número de fila, empezando en 1 (sin contar la cabecera del CSV).
+     * @param idProducto  ID del producto creado o actualizado; null si hubo error.
+     * @param resultado   CREADO, ACTUALIZADO o ERROR.
+     * @param mensaje     Motivo del error; null si se importó.
+     */
+    public record Fila(long fila, Long idProducto, Resultado resultado, String mensaje) {}
+}
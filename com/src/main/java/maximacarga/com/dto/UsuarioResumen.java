@@ -0,0 +1,40 @@
+package maximacarga.com.dto;
+
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Proyección de un usuario para el perfil y el listado.
+ *
+ * Solo selecciona columnas de datos personales: ni la foto, ni la
+ * contraseña, ni los tokens de activación y recuperación.
+ */
+public interface UsuarioResumen {
+
+    Long getIdUsuario();
+
+    String getNombreUsuario();
+
+    String getApellidosUsuario();
+
+    LocalDate getFchNacUsu();
+
+    String getMovil();
+
+    String getCorreoElectronico();
+
+    String getTipoUsuario();
+
+    boolean isActivo();
+
+    @JsonIgnore
+    Boolean getTieneFoto();
+
+    /**
+     * URL desde la que se sirve la foto, o null si no tiene.
+     */
+    default String getUrlFoto() {
+        return Boolean.TRUE.equals(getTieneFoto()) ? "/api/usuarios/" + getIdUsuario() + "/foto" : null;
+    }
+}
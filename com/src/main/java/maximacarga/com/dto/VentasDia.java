@@ -0,0 +1,19 @@
+package maximacarga.com.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+import maximacarga.com.entidades.Pedido.EstadoPedido;
+
+/**
+ * Ventas de un día para la serie temporal del panel de administración.
+ *
+ * @param fecha             Día.
+ * @param pedidos           Pedidos creados ese día, en cualquier estado.
+ * @param importe           Suma de los totales, sin los pedidos cancelados.
+ * @param pedidosPorEstado  Pedidos de ese día en cada estado (todos los estados, aunque sean 0).
+ */
+public record VentasDia(LocalDate fecha, long pedidos, BigDecimal importe,
+                        Map<EstadoPedido, Long> pedidosPorEstado) {
+}
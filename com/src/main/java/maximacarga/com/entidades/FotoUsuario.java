@@ -0,0 +1,85 @@
+package maximacarga.com.entidades;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Foto de perfil de un usuario.
+ *
+ * Se guarda en una tabla propia para que leer un usuario (login,
+ * perfil, listado) no cargue los bytes de la foto. Solo se lee desde
+ * GET /api/usuarios/{id}/foto.
+ */
+@Entity
+@Table(name = "usuario_fotos")
+public class FotoUsuario {
+
+    /**
+     * Mismo ID que el usuario al que pertenece la foto.
+     */
+    @Id
+    @Column(name = "idUsuario")
+    private Long idUsuario;
+
+    /**
+     * Bytes de las imágenes subidas antes de guardarlas en disco.
+     * Las nuevas se guardan en AlmacenImagenes y dejan esta columna a null.
+     */
+    @Column(name = "datos", columnDefinition = "LONGBLOB")
+    private byte[] datos;
+
+    /**
+     * SHA-256 del contenido, calculado al subir la imagen.
+     * Es el ETag con el que se responde a las peticiones condicionales.
+     */
+    @Column(name = "hash", length = 64)
+    private String hash;
+
+    /**
+     * Tipo MIME detectado al subir la imagen (null en las antiguas).
+     */
+    @Column(name = "tipoContenido", length = 50)
+    private String tipoContenido;
+
+    @Column(name = "tamanio")
+    private Long tamanio;
+
+    @Column(name = "fechaModificacion")
+    private Instant fechaModificacion;
+
+    public FotoUsuario() {}
+
+    public FotoUsuario(Long idUsuario, byte[] datos, String hash,
+            String tipoContenido, Long tamanio, Instant fechaModificacion) {
+        this.idUsuario = idUsuario;
+        this.datos = datos;
+        this.hash = hash;
+        this.tipoContenido = tipoContenido;
+        this.tamanio = tamanio;
+        this.fechaModificacion = fechaModificacion;
+    }
+
+    // ===== GETTERS/SETTERS =====
+
+    public Long getIdUsuario() { return idUsuario; }
+    public void setIdUsuario(Long idUsuario) { this.idUsuario = idUsuario; }
+
+    public byte[] getDatos() { return datos; }
+    public void setDatos(byte[] datos) { this.datos = datos; }
+
+    public String getHash() { return hash; }
+    public void setHash(String hash) { this.hash = hash; }
+
+    public String getTipoContenido() { return tipoContenido; }
+    public void setTipoContenido(String tipoContenido) { this.tipoContenido = tipoContenido; }
+
+    public Long getTamanio() { return tamanio; }
+    public void setTamanio(Long tamanio) { this.tamanio = tamanio; }
+
+    public Instant getFechaModificacion() { return fechaModificacion; }
+    public void setFechaModificacion(Instant fechaModificacion) { this.fechaModificacion = fechaModificacion; }
+}
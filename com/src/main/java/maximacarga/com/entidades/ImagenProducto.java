@@ -0,0 +1,108 @@
+package maximacarga.com.entidades;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Imagen de un producto.
+ *
+ * Se guarda en una tabla propia para que el catálogo no cargue
+ * los bytes de la imagen. Solo se lee desde GET /api/productos/{id}/imagen.
+ */
+@Entity
+@Table(name = "producto_imagenes")
+public class ImagenProducto {
+
+    /**
+     * Mismo ID que el producto al que pertenece la imagen.
+     */
+    @Id
+    @Column(name = "idProducto")
+    private Long idProducto;
+
+    /**
+     * Bytes de las imágenes subidas antes de guardarlas en disco.
+     * Las nuevas se guardan en AlmacenImagenes y dejan esta columna a null.
+     */
+    @Column(name = "datos", columnDefinition = "LONGBLOB")
+    private byte[] datos;
+
+    /**
+     * SHA-256 del contenido, calculado al subir la imagen.
+     * Es el ETag con el que se responde a las peticiones condicionales.
+     */
+    @Column(name = "hash", length = 64)
+    private String hash;
+
+    /**
+     * Tipo MIME detectado al subir la imagen (null en las antiguas).
+     */
+    @Column(name = "tipoContenido", length = 50)
+    private String tipoContenido;
+
+    @Column(name = "tamanio")
+    private Long tamanio;
+
+    @Column(name = "fechaModificacion")
+    private Instant fechaModificacion;
+
+    public ImagenProducto() {}
+
+    public ImagenProducto(Long idProducto, byte[] datos, String hash,
+            String tipoContenido, Long tamanio, Instant fechaModificacion) {
+        this.idProducto = idProducto;
+        this.datos = datos;
+        this.hash = hash;
+        this.tipoContenido = tipoContenido;
+        this.tamanio = tamanio;
+        this.fechaModificacion = fechaModificacion;
+    }
+
+    // Getters y setters
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+    public void setIdProducto(Long idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public byte[] getDatos() {
+        return datos;
+    }
+    public void setDatos(byte[] datos) {
+        this.datos = datos;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public String getTipoContenido() {
+        return tipoContenido;
+    }
+    public void setTipoContenido(String tipoContenido) {
+        this.tipoContenido = tipoContenido;
+    }
+
+    public Long getTamanio() {
+        return tamanio;
+    }
+    public void setTamanio(Long tamanio) {
+        this.tamanio = tamanio;
+    }
+
+    public Instant getFechaModificacion() {
+        return fechaModificacion;
+    }
+    public void setFechaModificacion(Instant fechaModificacion) {
+        this.fechaModificacion = fechaModificacion;
+    }
+}
@@ -5,6 +5,8 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -13,20 +15,31 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 /**
  * Clase pedido con elementos necesarios de pedidos
  */
 @Entity
-@Table(name = "pedidos")
+@Table(name = "pedidos", indexes = {
+        @Index(name = "idx_pedidos_usuario_fecha", columnList = "usuario_id, fecha"),
+        @Index(name = "idx_pedidos_estado_fecha", columnList = "estado, fecha")
+})
 public class Pedido {
 
+    /**
+     * Se usa una secuencia en lugar de IDENTITY para que Hibernate
+     * pueda agrupar los INSERT en lotes JDBC (allocationSize reserva
+     * 50 IDs por cada llamada a la secuencia).
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedidoGenerador")
+    @SequenceGenerator(name = "pedidoGenerador", sequenceName = "pedidos_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "usuario_id", nullable = false)
@@ -63,7 +76,12 @@ public class Pedido {
     @Column(nullable = false)
     private EstadoPedido estado;
 
+    /**
+     * Las líneas de varios pedidos se cargan juntas (IN de hasta 100 IDs)
+     * cuando se recorren los pedidos de una página.
+     */
     @OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
     private List<PedidoLinea> lineas = new ArrayList<>();
 
     public enum EstadoPedido {
@@ -7,16 +7,22 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "pedido_lineas")
+@Table(name = "pedido_lineas", indexes = {
+        @Index(name = "idx_pedido_lineas_pedido", columnList = "pedido_id")
+})
 public class PedidoLinea {
 
+    /** Secuencia por el mismo motivo que en {@link Pedido}. */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedidoLineaGenerador")
+    @SequenceGenerator(name = "pedidoLineaGenerador", sequenceName = "pedido_lineas_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
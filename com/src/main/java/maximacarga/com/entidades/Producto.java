@@ -1,12 +1,15 @@
 package maximacarga.com.entidades;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.Lob;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 
 @Entity
 @Table(name = "productos")
@@ -25,8 +28,20 @@ public class Producto {
 
     private Integer stock;
 
-    // De momento la dejamos opcional
-    @Lob
+    /**
+     * Indica si el producto tiene imagen en la tabla producto_imagenes.
+     * Los bytes nunca se cargan junto al producto.
+     */
+    @Column(name = "tieneImagen")
+    private Boolean tieneImagen;
+
+    /**
+     * Imagen recibida en el JSON al crear o actualizar.
+     * No se persiste en esta tabla ni se devuelve en las respuestas:
+     * el servicio la guarda en producto_imagenes.
+     */
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private byte[] imagenProducto;
 
     // Getters y setters
@@ -66,6 +81,36 @@ public class Producto {
         this.stock = stock;
     }
 
+    @JsonIgnore
+    public Boolean getTieneImagen() {
+        return tieneImagen;
+    }
+    public void setTieneImagen(Boolean tieneImagen) {
+        this.tieneImagen = tieneImagen;
+    }
+
+    /**
+     * URL desde la que se sirve la imagen del producto.
+     *
+     * @return URL de la imagen o null si el producto no tiene.
+     */
+    public String getUrlImagen() {
+        if (idProducto == null || !Boolean.TRUE.equals(tieneImagen)) {
+            return null;
+        }
+        return "/api/productos/" + idProducto + "/imagen";
+    }
+
+    /**
+     * URL de la miniatura del producto, pensada para las rejillas del catálogo.
+     *
+     * @return URL de la miniatura o null si el producto no tiene imagen.
+     */
+    public String getUrlMiniatura() {
+        String url = getUrlImagen();
+        return url == null ? null : url + "/miniatura";
+    }
+
     public byte[] getImagenProducto() {
         return imagenProducto;
     }
@@ -4,16 +4,31 @@ import java.time.Instant;              // <- añadido
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.Lob;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 
+/**
+ * Usuario de la aplicación.
+ *
+ * Las búsquedas por correo (login) y por token de activación usan los
+ * índices únicos de esas columnas; la de token de recuperación usa
+ * idx_usuario_token_recuperacion. El token de recuperación se guarda
+ * como SHA-256 (64 caracteres hexadecimales), nunca en claro.
+ * Los otros dos índices los usa la purga programada (PurgaUsuariosServicio).
+ */
 @Entity
-@Table(name = "usuario")
+@Table(name = "usuario", indexes = {
+        @Index(name = "idx_usuario_token_recuperacion", columnList = "token_recuperacion"),
+        @Index(name = "idx_usuario_fecha_token_recuperacion", columnList = "fecha_token_recuperacion"),
+        @Index(name = "idx_usuario_activo_expiracion", columnList = "activo, fecha_expiracion_token_activacion")
+})
 public class Usuario {
 
     @Id
@@ -25,8 +40,12 @@ public class Usuario {
     private String nombreUsuario;
     
     
-    @Column(name = "foto", columnDefinition = "LONGBLOB")
-    private byte[] foto;
+    /**
+     * Indica si el usuario tiene foto en la tabla usuario_fotos.
+     * Los bytes nunca se cargan junto al usuario.
+     */
+    @Column(name = "tieneFoto")
+    private Boolean tieneFoto;
 
     @Column(name = "apellidosUsuario", length = 100)
     private String apellidosUsuario;
@@ -50,7 +69,7 @@ public class Usuario {
     @Column(name = "activo", nullable = false)
     private boolean activo = false;
     
-    @Column(name = "token_recuperacion")
+    @Column(name = "token_recuperacion", length = 64)
     private String tokenRecuperacion;
 
     @Column(name = "fecha_token_recuperacion")
@@ -91,13 +110,10 @@ public class Usuario {
 
     // ===== GETTERS/SETTERS =====
     
-    public byte[] getFoto() {
-        return foto;
-    }
+    @JsonIgnore
+    public Boolean getTieneFoto() { return tieneFoto; }
+    public void setTieneFoto(Boolean tieneFoto) { this.tieneFoto = tieneFoto; }
 
-    public void setFoto(byte[] foto) {
-        this.foto = foto;
-    }
     public Long getIdUsuario() { return idUsuario; }
     public void setIdUsuario(Long idUsuario) { this.idUsuario = idUsuario; }
 
@@ -134,6 +150,7 @@ public class Usuario {
         this.fechaExpiracionTokenActivacion = fechaExpiracionTokenActivacion;
     }
 
+    @JsonIgnore
     public String getTokenRecuperacion() {
         return tokenRecuperacion;
     }
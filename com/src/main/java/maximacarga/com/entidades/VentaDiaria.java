@@ -0,0 +1,84 @@
+package maximacarga.com.entidades;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import maximacarga.com.entidades.Pedido.EstadoPedido;
+
+/**
+ * Pedidos e importe de un día en un estado.
+ *
+ * No se escribe con JPA: InformeVentasServicio vuelca en ella los
+ * cambios de pedidos ya confirmados con INSERT ... ON DUPLICATE KEY UPDATE
+ * (ver VentasAgregadasRepositorio).
+ */
+@Entity
+@IdClass(VentaDiaria.Clave.class)
+@Table(name = "ventas_diarias")
+public class VentaDiaria {
+
+    @Id
+    private LocalDate fecha;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private EstadoPedido estado;
+
+    @Column(nullable = false)
+    private long pedidos;
+
+    /** Suma de Pedido.total de los pedidos del día en este estado. */
+    @Column(nullable = false, precision = 38, scale = 2)
+    private BigDecimal importe;
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public EstadoPedido getEstado() {
+        return estado;
+    }
+
+    public long getPedidos() {
+        return pedidos;
+    }
+
+    public BigDecimal getImporte() {
+        return importe;
+    }
+
+    /**
+     * Clave primaria (fecha, estado).
+     */
+    public static class Clave implements Serializable {
+
+        private LocalDate fecha;
+        private EstadoPedido estado;
+
+        public Clave() {}
+
+        public Clave(LocalDate fecha, EstadoPedido estado) {
+            this.fecha = fecha;
+            this.estado = estado;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Clave otra && Objects.equals(fecha, otra.fecha) && estado == otra.estado;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fecha, estado);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package maximacarga.com.entidades;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+/**
+ * Unidades e importe vendidos de un producto en un día,
+ * sin contar los pedidos cancelados.
+ *
+ * Igual que VentaDiaria, solo se escribe desde VentasAgregadasRepositorio.
+ */
+@Entity
+@IdClass(VentaProductoDiaria.Clave.class)
+@Table(name = "ventas_producto_diarias")
+public class VentaProductoDiaria {
+
+    @Id
+    private LocalDate fecha;
+
+    @Id
+    @Column(name = "producto_id")
+    private Long productoId;
+
+    @Column(nullable = false)
+    private long unidades;
+
+    /** Suma de PedidoLinea.subtotal. */
+    @Column(nullable = false, precision = 38, scale = 2)
+    private BigDecimal importe;
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public Long getProductoId() {
+        return productoId;
+    }
+
+    public long getUnidades() {
+        return unidades;
+    }
+
+    public BigDecimal getImporte() {
+        return importe;
+    }
+
+    /**
+     * Clave primaria (fecha, producto_id).
+     */
+    public static class Clave implements Serializable {
+
+        private LocalDate fecha;
+        private Long productoId;
+
+        public Clave() {}
+
+        public Clave(LocalDate fecha, Long productoId) {
+            this.fecha = fecha;
+            this.productoId = productoId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Clave otra && Objects.equals(fecha, otra.fecha)
+                    && Objects.equals(productoId, otra.productoId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fecha, productoId);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package maximacarga.com.repositorios;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import maximacarga.com.dto.MetadatosImagen;
+import maximacarga.com.entidades.FotoUsuario;
+
+/**
+ * Repositorio JPA para las fotos de perfil.
+ *
+ * La clave es el ID del usuario, así que cada usuario
+ * tiene como mucho una foto.
+ */
+@Repository
+public interface FotoUsuarioRepositorio extends JpaRepository<FotoUsuario, Long> {
+
+    /**
+     * Devuelve el hash y la fecha de modificación sin leer los bytes.
+     *
+     * @param idUsuario ID del usuario.
+     * @return Optional con los metadatos si hay imagen.
+     */
+    @Query("select i.hash as hash, i.fechaModificacion as fechaModificacion, i.tipoContenido as tipoContenido from FotoUsuario i where i.idUsuario = :id")
+    Optional<MetadatosImagen> findMetadatosById(@Param("id") Long idUsuario);
+}
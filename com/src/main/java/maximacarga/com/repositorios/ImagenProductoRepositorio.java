@@ -0,0 +1,30 @@
+package maximacarga.com.repositorios;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import maximacarga.com.dto.MetadatosImagen;
+import maximacarga.com.entidades.ImagenProducto;
+
+/**
+ * Repositorio JPA para las imágenes de los productos.
+ *
+ * La clave es el ID del producto, así que cada producto
+ * tiene como mucho una imagen.
+ */
+@Repository
+public interface ImagenProductoRepositorio extends JpaRepository<ImagenProducto, Long> {
+
+    /**
+     * Devuelve el hash y la fecha de modificación sin leer los bytes.
+     *
+     * @param idProducto ID del producto.
+     * @return Optional con los metadatos si hay imagen.
+     */
+    @Query("select i.hash as hash, i.fechaModificacion as fechaModificacion, i.tipoContenido as tipoContenido from ImagenProducto i where i.idProducto = :id")
+    Optional<MetadatosImagen> findMetadatosById(@Param("id") Long idProducto);
+}
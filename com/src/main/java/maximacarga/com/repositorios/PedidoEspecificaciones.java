@@ -0,0 +1,36 @@
+package maximacarga.com.repositorios;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import maximacarga.com.entidades.Pedido;
+import maximacarga.com.entidades.Pedido.EstadoPedido;
+
+/**
+ * Filtros para la búsqueda de pedidos.
+ *
+ * Cada filtro devuelve null si no se indica el valor, y Spring Data
+ * lo ignora al combinarlos. Las columnas coinciden con los índices
+ * (usuario_id, fecha) y (estado, fecha) de la tabla pedidos.
+ */
+public final class PedidoEspecificaciones {
+
+    private PedidoEspecificaciones() {}
+
+    public static Specification<Pedido> conEstado(EstadoPedido estado) {
+        return (root, query, cb) -> estado == null ? null : cb.equal(root.get("estado"), estado);
+    }
+
+    public static Specification<Pedido> deUsuario(Long usuarioId) {
+        return (root, query, cb) -> usuarioId == null ? null : cb.equal(root.get("usuarioId"), usuarioId);
+    }
+
+    public static Specification<Pedido> desde(LocalDateTime desde) {
+        return (root, query, cb) -> desde == null ? null : cb.greaterThanOrEqualTo(root.get("fecha"), desde);
+    }
+
+    public static Specification<Pedido> hasta(LocalDateTime hasta) {
+        return (root, query, cb) -> hasta == null ? null : cb.lessThan(root.get("fecha"), hasta);
+    }
+}
@@ -0,0 +1,32 @@
+package maximacarga.com.repositorios;
+
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+import maximacarga.com.dto.PedidoDTO;
+import maximacarga.com.entidades.Pedido.EstadoPedido;
+
+/**
+ * Lectura de pedidos con sus líneas para exportarlos sin cargarlos
+ * todos en memoria.
+ */
+public interface PedidoExportacionRepositorio {
+
+    /**
+     * Recorre los pedidos que cumplen los filtros, ordenados por ID,
+     * y entrega cada uno con sus líneas en cuanto se ha leído.
+     * Solo hay un pedido en memoria a la vez.
+     *
+     * Debe llamarse dentro de una transacción de solo lectura para que
+     * todo el recorrido vea la misma foto de los datos.
+     *
+     * @param estado Estado del pedido (opcional).
+     * @param usuarioId ID del usuario (opcional).
+     * @param desde Fecha mínima incluida (opcional).
+     * @param hasta Fecha máxima excluida (opcional).
+     * @param pedido Recibe cada pedido.
+     */
+    void recorrerConLineas(EstadoPedido estado, Long usuarioId,
+                           LocalDateTime desde, LocalDateTime hasta,
+                           Consumer<PedidoDTO> pedido);
+}
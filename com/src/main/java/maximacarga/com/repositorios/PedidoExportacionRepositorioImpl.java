@@ -0,0 +1,127 @@
+package maximacarga.com.repositorios;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import maximacarga.com.dto.PedidoDTO;
+import maximacarga.com.dto.PedidoLineaDTO;
+import maximacarga.com.entidades.Pedido.EstadoPedido;
+
+/**
+ * Implementación con JDBC de PedidoExportacionRepositorio.
+ *
+ * Es una sola consulta pedidos LEFT JOIN pedido_lineas con un ResultSet
+ * de solo avance y un fetch size, así que el driver de MariaDB va trayendo
+ * las filas por bloques en lugar de cargar el resultado entero. Al ordenar
+ * por el ID del pedido sus líneas llegan seguidas y se puede entregar cada
+ * pedido en cuanto aparece la primera fila del siguiente.
+ */
+public class PedidoExportacionRepositorioImpl implements PedidoExportacionRepositorio {
+
+    /** Filas que el driver trae en cada viaje a la base de datos. */
+    static final int FILAS_POR_LECTURA = 1000;
+
+    private static final String CONSULTA =
+            "SELECT p.id, p.usuario_id, p.fecha, p.fecha_entrega, p.subtotal, p.total, p.estado,"
+            + " l.id AS linea_id, l.producto_id, l.nombre_producto, l.precio_unitario, l.cantidad,"
+            + " l.subtotal AS linea_subtotal"
+            + " FROM pedidos p LEFT JOIN pedido_lineas l ON l.pedido_id = p.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PedidoExportacionRepositorioImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void recorrerConLineas(EstadoPedido estado, Long usuarioId,
+                                  LocalDateTime desde, LocalDateTime hasta,
+                                  Consumer<PedidoDTO> pedido) {
+        List<String> condiciones = new ArrayList<>();
+        List<Object> parametros = new ArrayList<>();
+        if (estado != null) {
+            condiciones.add("p.estado = ?");
+            parametros.add(estado.name());
+        }
+        if (usuarioId != null) {
+            condiciones.add("p.usuario_id = ?");
+            parametros.add(usuarioId);
+        }
+        if (desde != null) {
+            condiciones.add("p.fecha >= ?");
+            parametros.add(Timestamp.valueOf(desde));
+        }
+        if (hasta != null) {
+            condiciones.add("p.fecha < ?");
+            parametros.add(Timestamp.valueOf(hasta));
+        }
+
+        String sql = CONSULTA
+                + (condiciones.isEmpty() ? "" : " WHERE " + String.join(" AND ", condiciones))
+                + " ORDER BY p.id";
+
+        AgrupadorPedidos agrupador = new AgrupadorPedidos(pedido);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FILAS_POR_LECTURA);
+            new ArgumentPreparedStatementSetter(parametros.toArray()).setValues(ps);
+            return ps;
+        }, agrupador);
+        agrupador.terminar();
+    }
+
+    /**
+     * Junta las filas seguidas de un mismo pedido y lo entrega
+     * cuando empieza el siguiente.
+     */
+    private static final class AgrupadorPedidos implements RowCallbackHandler {
+
+        private final Consumer<PedidoDTO> destino;
+
+        /** Columnas del pedido en curso (leídas de su primera fila), sin las líneas. */
+        private PedidoDTO actual;
+        private List<PedidoLineaDTO> lineas;
+
+        AgrupadorPedidos(Consumer<PedidoDTO> destino) {
+            this.destino = destino;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long id = rs.getLong("id");
+            if (actual == null || actual.id() != id) {
+                terminar();
+                actual = new PedidoDTO(id, rs.getLong("usuario_id"),
+                        rs.getObject("fecha", LocalDateTime.class),
+                        rs.getObject("fecha_entrega", LocalDateTime.class),
+                        rs.getBigDecimal("subtotal"), rs.getBigDecimal("total"),
+                        EstadoPedido.valueOf(rs.getString("estado")), null);
+                lineas = new ArrayList<>();
+            }
+            long lineaId = rs.getLong("linea_id");
+            if (!rs.wasNull()) {
+                lineas.add(new PedidoLineaDTO(lineaId, rs.getLong("producto_id"),
+                        rs.getString("nombre_producto"), rs.getBigDecimal("precio_unitario"),
+                        rs.getInt("cantidad"), rs.getBigDecimal("linea_subtotal")));
+            }
+        }
+
+        void terminar() {
+            if (actual != null) {
+                destino.accept(new PedidoDTO(actual.id(), actual.usuarioId(), actual.fecha(),
+                        actual.fechaEntrega(), actual.subtotal(), actual.total(), actual.estado(), lineas));
+                actual = null;
+            }
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package maximacarga.com.repositorios;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import jakarta.persistence.LockModeType;
 import maximacarga.com.entidades.Pedido;
 
 
@@ -14,8 +20,11 @@ import maximacarga.com.entidades.Pedido;
  * Proporciona:
  * - Operaciones CRUD básicas (heredadas de JpaRepository)
  * - Métodos personalizados de consulta
+ * - Búsqueda paginada con filtros (ver PedidoEspecificaciones)
+ * - Recorrido por bloques para exportar (ver PedidoExportacionRepositorio)
  */
-public interface PedidoRepositorio extends JpaRepository<Pedido, Long> {
+public interface PedidoRepositorio extends JpaRepository<Pedido, Long>, JpaSpecificationExecutor<Pedido>,
+        PedidoExportacionRepositorio {
 	
 	 /**
      * Devuelve todos los pedidos asociados a un usuario concreto.
@@ -27,4 +36,35 @@ public interface PedidoRepositorio extends JpaRepository<Pedido, Long> {
      * @return Lista de pedidos del usuario.
      */
 	List<Pedido> findAllByUsuarioId(Long usuarioId);
+
+	/**
+	 * Devuelve todos los pedidos con sus líneas en una sola consulta
+	 * (join fetch), en lugar de una consulta extra por pedido.
+	 *
+	 * @return Lista de pedidos con las líneas cargadas.
+	 */
+	@Query("select distinct p from Pedido p left join fetch p.lineas order by p.id")
+	List<Pedido> findAllConLineas();
+
+	/**
+	 * Devuelve los pedidos de un usuario con sus líneas en una sola consulta.
+	 *
+	 * @param usuarioId ID del usuario.
+	 * @return Lista de pedidos del usuario con las líneas cargadas.
+	 */
+	@Query("select distinct p from Pedido p left join fetch p.lineas where p.usuarioId = :usuarioId order by p.id")
+	List<Pedido> findAllConLineasByUsuarioId(@Param("usuarioId") Long usuarioId);
+
+	/**
+	 * Lee un pedido bloqueando su fila (SELECT ... FOR UPDATE) hasta el fin
+	 * de la transacción. Lo usan los cambios que ajustan las ventas diarias
+	 * según el estado leído: un segundo cambio concurrente espera y ve ya
+	 * el estado nuevo, en lugar de aplicar otra vez el mismo ajuste.
+	 *
+	 * @param id ID del pedido.
+	 * @return Pedido bloqueado, si existe.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select p from Pedido p where p.id = :id")
+	Optional<Pedido> findByIdParaActualizar(@Param("id") Long id);
 }
@@ -0,0 +1,35 @@
+package maximacarga.com.repositorios;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import maximacarga.com.entidades.Producto;
+
+/**
+ * Escritura de productos por lotes JDBC para la importación masiva.
+ * Deben llamarse dentro de una transacción (una por lote).
+ */
+public interface ProductoImportacionRepositorio {
+
+    /**
+     * Inserta los productos en un solo lote, sin imagen.
+     *
+     * @param productos Productos nuevos (sin ID).
+     * @return IDs generados, en el mismo orden que los productos.
+     */
+    List<Long> insertarLote(List<Producto> productos);
+
+    /**
+     * Devuelve cuáles de los IDs existen, en una sola consulta.
+     */
+    Set<Long> existentes(Collection<Long> ids);
+
+    /**
+     * Actualiza nombre, descripción, precio y stock de productos existentes
+     * en un solo lote. La imagen no se toca.
+     *
+     * @param productos Productos con su ID (comprobado con existentes).
+     */
+    void actualizarLote(List<Producto> productos);
+}
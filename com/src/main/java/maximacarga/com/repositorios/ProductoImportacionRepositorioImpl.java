@@ -0,0 +1,94 @@
+package maximacarga.com.repositorios;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import maximacarga.com.entidades.Producto;
+
+/**
+ * Implementación con JDBC de ProductoImportacionRepositorio.
+ *
+ * Producto usa IDENTITY, así que Hibernate no puede agrupar sus INSERT
+ * (necesita el ID de cada fila en cuanto la inserta). Aquí se envía un
+ * único executeBatch por lote y los IDs se leen después de getGeneratedKeys.
+ * Los UPDATE tampoco dependen de los recuentos del lote (el driver de
+ * MariaDB puede devolver SUCCESS_NO_INFO): los IDs que no existen se
+ * descartan antes con una consulta.
+ */
+public class ProductoImportacionRepositorioImpl implements ProductoImportacionRepositorio {
+
+    private static final String INSERTAR =
+            "INSERT INTO productos (nombre, descripcion, precio, stock, tieneImagen) VALUES (?, ?, ?, ?, FALSE)";
+
+    private static final String ACTUALIZAR =
+            "UPDATE productos SET nombre = ?, descripcion = ?, precio = ?, stock = ? WHERE idProducto = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductoImportacionRepositorioImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Long> insertarLote(List<Producto> productos) {
+        if (productos.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.execute(con -> con.prepareStatement(INSERTAR, Statement.RETURN_GENERATED_KEYS), (PreparedStatement ps) -> {
+            for (Producto producto : productos) {
+                ps.setString(1, producto.getNombre());
+                ps.setString(2, producto.getDescripcion());
+                ps.setDouble(3, producto.getPrecio());
+                ps.setInt(4, producto.getStock());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+
+            List<Long> ids = new ArrayList<>(productos.size());
+            try (ResultSet claves = ps.getGeneratedKeys()) {
+                while (claves.next()) {
+                    ids.add(claves.getLong(1));
+                }
+            }
+            if (ids.size() != productos.size()) {
+                throw new IllegalStateException("El driver devolvió " + ids.size()
+                        + " IDs para " + productos.size() + " productos");
+            }
+            return ids;
+        });
+    }
+
+    @Override
+    public Set<Long> existentes(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Set.of();
+        }
+        String marcadores = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT idProducto FROM productos WHERE idProducto IN (" + marcadores + ")",
+                Long.class, ids.toArray()));
+    }
+
+    @Override
+    public void actualizarLote(List<Producto> productos) {
+        if (productos.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(ACTUALIZAR, productos, productos.size(), (ps, producto) -> {
+            ps.setString(1, producto.getNombre());
+            ps.setString(2, producto.getDescripcion());
+            ps.setDouble(3, producto.getPrecio());
+            ps.setInt(4, producto.getStock());
+            ps.setLong(5, producto.getIdProducto());
+        });
+    }
+}
@@ -1,7 +1,15 @@
 package maximacarga.com.repositorios;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import maximacarga.com.entidades.Producto;
 
@@ -10,8 +18,46 @@ import maximacarga.com.entidades.Producto;
  * Repositorio JPA para la entidad Producto.
  * 
  * Proporciona acceso a la base de datos para operaciones
- * relacionadas con productos.
+ * relacionadas con productos. La reserva de stock está en
+ * ProductoStockRepositorio y la importación masiva en
+ * ProductoImportacionRepositorio.
  */
 @Repository
-public interface ProductoRepositorio extends JpaRepository<Producto, Long> {
+public interface ProductoRepositorio extends JpaRepository<Producto, Long>, ProductoStockRepositorio,
+        ProductoImportacionRepositorio {
+
+    /**
+     * Devuelve los productos con ID mayor que el indicado, ordenados por ID.
+     * Es la consulta de la paginación por cursor (keyset): usa la clave
+     * primaria, así que su coste no depende de la página pedida.
+     *
+     * El tipo permite pedir la entidad completa o una proyección
+     * como ProductoResumen, que solo selecciona sus columnas.
+     *
+     * @param idProducto Último ID de la página anterior.
+     * @param limite Número máximo de filas.
+     * @param tipo Clase de la entidad o de la proyección.
+     * @return Productos de la página.
+     */
+    <T> List<T> findByIdProductoGreaterThanOrderByIdProductoAsc(Long idProducto, Limit limite, Class<T> tipo);
+
+    /**
+     * Devuelve los productos con los IDs indicados, en cualquier orden.
+     *
+     * @param ids IDs de los productos.
+     * @param tipo Clase de la entidad o de la proyección.
+     * @return Productos encontrados (los que no existen se omiten).
+     */
+    <T> List<T> findByIdProductoIn(Collection<Long> ids, Class<T> tipo);
+
+    /**
+     * Marca que el producto tiene imagen sin cargar la entidad.
+     *
+     * @param idProducto ID del producto.
+     * @return Filas actualizadas (0 si no existe).
+     */
+    @Transactional
+    @Modifying
+    @Query("update Producto p set p.tieneImagen = true where p.idProducto = :id")
+    int marcarConImagen(@Param("id") Long idProducto);
 }
@@ -0,0 +1,28 @@
+package maximacarga.com.repositorios;
+
+import java.util.SortedMap;
+
+/**
+ * Operaciones de stock de productos que no se pueden expresar
+ * como consulta derivada de Spring Data.
+ */
+public interface ProductoStockRepositorio {
+
+    /**
+     * Descuenta el stock de varios productos en una sola sentencia
+     * UPDATE condicional: solo se modifica cada fila si su stock es
+     * mayor o igual que la cantidad pedida.
+     *
+     * Un stock NULL (filas antiguas: la columna admite NULL y la validación
+     * de productos solo lo exige en las altas nuevas) se trata como stock
+     * sin límite: el pedido se acepta y el stock sigue siendo NULL,
+     * igual que antes de reservar stock en los pedidos.
+     *
+     * Debe llamarse dentro de una transacción: si no se pueden descontar
+     * todas las cantidades, quien llama tiene que deshacerla.
+     *
+     * @param cantidades Cantidad a descontar por ID de producto.
+     * @return true si se descontó el stock de todos los productos.
+     */
+    boolean descontarStock(SortedMap<Long, Integer> cantidades);
+}
@@ -0,0 +1,55 @@
+package maximacarga.com.repositorios;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Implementación con JDBC de ProductoStockRepositorio.
+ *
+ * La reserva de stock es un único
+ * UPDATE productos SET stock = stock - CASE ... WHERE idProducto IN (...)
+ * AND (stock IS NULL OR stock >= CASE ...)
+ * que la base de datos aplica fila a fila con bloqueo de fila, así que dos
+ * pedidos concurrentes nunca pueden dejar el stock en negativo y no hace
+ * falta bloquear los productos con SELECT ... FOR UPDATE antes.
+ * Los IDs se recorren ordenados para que todos los pedidos bloqueen
+ * las filas en el mismo orden. Un stock NULL es stock sin límite
+ * (NULL - n sigue siendo NULL).
+ */
+public class ProductoStockRepositorioImpl implements ProductoStockRepositorio {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductoStockRepositorioImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean descontarStock(SortedMap<Long, Integer> cantidades) {
+        if (cantidades.isEmpty()) {
+            return true;
+        }
+
+        String casos = "CASE idProducto" + " WHEN ? THEN ?".repeat(cantidades.size()) + " END";
+        String ids = String.join(", ", Collections.nCopies(cantidades.size(), "?"));
+        String sql = "UPDATE productos SET stock = stock - " + casos
+                + " WHERE idProducto IN (" + ids + ") AND (stock IS NULL OR stock >= " + casos + ")";
+
+        List<Object> parametrosCasos = new ArrayList<>();
+        cantidades.forEach((id, cantidad) -> {
+            parametrosCasos.add(id);
+            parametrosCasos.add(cantidad);
+        });
+
+        List<Object> parametros = new ArrayList<>(parametrosCasos);
+        parametros.addAll(cantidades.keySet());
+        parametros.addAll(parametrosCasos);
+
+        int actualizados = jdbcTemplate.update(sql, parametros.toArray());
+        return actualizados == cantidades.size();
+    }
+}
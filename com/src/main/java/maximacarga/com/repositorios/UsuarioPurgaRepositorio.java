@@ -0,0 +1,35 @@
+package maximacarga.com.repositorios;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Operaciones por lotes de la purga de tokens caducados y de cuentas
+ * que nunca se activaron.
+ *
+ * Cada operación se divide en dos pasos: seleccionar como mucho "lote"
+ * IDs (lectura sin bloqueos) y aplicar el UPDATE/DELETE solo sobre esos
+ * IDs, volviendo a comprobar la condición por si la fila cambió entre
+ * medias. Así cada transacción bloquea un número acotado de filas.
+ */
+public interface UsuarioPurgaRepositorio {
+
+    List<Long> idsConTokenRecuperacionCaducado(LocalDateTime generadoAntesDe, int lote);
+
+    int borrarTokensRecuperacion(List<Long> ids, LocalDateTime generadoAntesDe);
+
+    List<Long> idsConTokenActivacionCaducado(Instant caducadoAntesDe, int lote);
+
+    int borrarTokensActivacion(List<Long> ids, Instant caducadoAntesDe);
+
+    List<Long> idsInactivosSinPedidos(Instant caducadoAntesDe, int lote);
+
+    /**
+     * Elimina los usuarios indicados y sus fotos, solo si siguen inactivos
+     * y sin pedidos.
+     *
+     * @return Usuarios eliminados.
+     */
+    int eliminarInactivos(List<Long> ids, Instant caducadoAntesDe);
+}
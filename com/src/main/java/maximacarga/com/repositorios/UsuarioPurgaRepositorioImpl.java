@@ -0,0 +1,103 @@
+package maximacarga.com.repositorios;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Implementación con JDBC de UsuarioPurgaRepositorio.
+ *
+ * Las selecciones usan los índices idx_usuario_fecha_token_recuperacion
+ * e idx_usuario_activo_expiracion, así que cada lote cuesta lo mismo
+ * aunque la tabla tenga millones de usuarios.
+ */
+public class UsuarioPurgaRepositorioImpl implements UsuarioPurgaRepositorio {
+
+    private static final String SIN_PEDIDOS =
+            " AND NOT EXISTS (SELECT 1 FROM pedidos p WHERE p.usuario_id = usuario.idUsuario)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public UsuarioPurgaRepositorioImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<Long> idsConTokenRecuperacionCaducado(LocalDateTime generadoAntesDe, int lote) {
+        return jdbcTemplate.queryForList(
+                "SELECT idUsuario FROM usuario WHERE fecha_token_recuperacion < ? LIMIT ?",
+                Long.class, Timestamp.valueOf(generadoAntesDe), lote);
+    }
+
+    @Override
+    public int borrarTokensRecuperacion(List<Long> ids, LocalDateTime generadoAntesDe) {
+        return jdbcTemplate.update(
+                "UPDATE usuario SET token_recuperacion = NULL, fecha_token_recuperacion = NULL"
+                        + " WHERE idUsuario IN (" + marcadores(ids) + ") AND fecha_token_recuperacion < ?",
+                parametros(ids, Timestamp.valueOf(generadoAntesDe)));
+    }
+
+    @Override
+    public List<Long> idsConTokenActivacionCaducado(Instant caducadoAntesDe, int lote) {
+        return jdbcTemplate.queryForList(
+                "SELECT idUsuario FROM usuario WHERE activo = FALSE"
+                        + " AND fecha_expiracion_token_activacion < ? AND token_activacion IS NOT NULL LIMIT ?",
+                Long.class, utc(caducadoAntesDe), lote);
+    }
+
+    @Override
+    public int borrarTokensActivacion(List<Long> ids, Instant caducadoAntesDe) {
+        // La fecha de expiración se conserva: es la que decide cuándo se elimina la cuenta
+        return jdbcTemplate.update(
+                "UPDATE usuario SET token_activacion = NULL"
+                        + " WHERE idUsuario IN (" + marcadores(ids) + ") AND activo = FALSE"
+                        + " AND fecha_expiracion_token_activacion < ?",
+                parametros(ids, utc(caducadoAntesDe)));
+    }
+
+    @Override
+    public List<Long> idsInactivosSinPedidos(Instant caducadoAntesDe, int lote) {
+        return jdbcTemplate.queryForList(
+                "SELECT idUsuario FROM usuario WHERE activo = FALSE"
+                        + " AND fecha_expiracion_token_activacion < ?" + SIN_PEDIDOS + " LIMIT ?",
+                Long.class, utc(caducadoAntesDe), lote);
+    }
+
+    @Override
+    public int eliminarInactivos(List<Long> ids, Instant caducadoAntesDe) {
+        Object[] parametros = parametros(ids, utc(caducadoAntesDe));
+        // Sin alias: MariaDB no los admite en un DELETE de una sola tabla
+        String condicion = " WHERE usuario.idUsuario IN (" + marcadores(ids) + ") AND usuario.activo = FALSE"
+                + " AND usuario.fecha_expiracion_token_activacion < ?" + SIN_PEDIDOS;
+
+        jdbcTemplate.update("DELETE FROM usuario_fotos WHERE idUsuario IN"
+                + " (SELECT usuario.idUsuario FROM usuario" + condicion + ")", parametros);
+        return jdbcTemplate.update("DELETE FROM usuario" + condicion, parametros);
+    }
+
+    // Hibernate guarda los Instant en UTC (fecha_expiracion_token_activacion es
+    // DATETIME, sin zona). JdbcTemplate pasa un Calendar con setTimestamp(i, t, cal),
+    // así que se compara en UTC sea cual sea la zona de la JVM
+    private static Calendar utc(Instant instante) {
+        Calendar calendario = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendario.setTimeInMillis(instante.toEpochMilli());
+        return calendario;
+    }
+
+    private static String marcadores(List<Long> ids) {
+        return String.join(", ", Collections.nCopies(ids.size(), "?"));
+    }
+
+    private static Object[] parametros(List<Long> ids, Object extra) {
+        List<Object> parametros = new ArrayList<>(ids);
+        parametros.add(extra);
+        return parametros.toArray();
+    }
+}
@@ -1,8 +1,14 @@
 package maximacarga.com.repositorios;
 
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import maximacarga.com.dto.UsuarioResumen;
 import maximacarga.com.entidades.Usuario;
 
 /**
@@ -10,9 +16,11 @@ import maximacarga.com.entidades.Usuario;
  * 
  * Gestiona el acceso a datos de los usuarios.
  * Hereda operaciones CRUD básicas desde JpaRepository.
+ * La purga por lotes de tokens y cuentas inactivas está en
+ * UsuarioPurgaRepositorio.
  */
 @Repository
-public interface UsuarioRepositorio extends JpaRepository<Usuario, Long> {
+public interface UsuarioRepositorio extends JpaRepository<Usuario, Long>, UsuarioPurgaRepositorio {
 
 	  /**
      * Busca un usuario por su correo electrónico.
@@ -36,12 +44,46 @@ public interface UsuarioRepositorio extends JpaRepository<Usuario, Long> {
     
     /**
      * Busca un usuario por su token de recuperación.
-     * Se usa para restablecer contraseña.
+     * Se usa para restablecer contraseña. Usa el índice
+     * idx_usuario_token_recuperacion.
      *
-     * @param tokenRecuperacion Token temporal.
+     * @param tokenRecuperacion SHA-256 del token temporal.
      * @return Optional con el usuario asociado.
      */
     Optional<Usuario> findByTokenRecuperacion(String tokenRecuperacion);
-    
-    
+
+    /**
+     * Devuelve todos los usuarios con la proyección UsuarioResumen.
+     * Solo se seleccionan las columnas de la proyección.
+     *
+     * @return Lista de usuarios.
+     */
+    List<UsuarioResumen> findAllProjectedBy();
+
+    /**
+     * Busca el resumen de un usuario por su ID.
+     *
+     * @param idUsuario ID del usuario.
+     * @return Optional con el resumen si existe.
+     */
+    Optional<UsuarioResumen> findResumenByIdUsuario(Long idUsuario);
+
+    /**
+     * Busca el resumen de un usuario por su correo electrónico.
+     *
+     * @param correoElectronico Email del usuario.
+     * @return Optional con el resumen si existe.
+     */
+    Optional<UsuarioResumen> findResumenByCorreoElectronico(String correoElectronico);
+
+    /**
+     * Marca que el usuario tiene foto sin cargar la entidad.
+     *
+     * @param idUsuario ID del usuario.
+     * @return Filas actualizadas (0 si no existe).
+     */
+    @Transactional
+    @Modifying
+    @Query("update Usuario u set u.tieneFoto = true where u.idUsuario = :id")
+    int marcarConFoto(@Param("id") Long idUsuario);
 }
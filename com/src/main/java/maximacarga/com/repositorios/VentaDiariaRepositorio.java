@@ -0,0 +1,25 @@
+package maximacarga.com.repositorios;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import maximacarga.com.entidades.VentaDiaria;
+
+/**
+ * Interfaz JPA para los agregados diarios de ventas.
+ *
+ * Las escrituras van por VentasAgregadasRepositorio (JDBC);
+ * desde JPA solo se lee la serie de días.
+ */
+public interface VentaDiariaRepositorio extends JpaRepository<VentaDiaria, VentaDiaria.Clave>, VentasAgregadasRepositorio {
+
+    /**
+     * Filas de un periodo (como mucho una por día y estado), ordenadas por día.
+     *
+     * @param desde Primer día incluido.
+     * @param hasta Último día incluido.
+     */
+    List<VentaDiaria> findAllByFechaBetweenOrderByFecha(LocalDate desde, LocalDate hasta);
+}
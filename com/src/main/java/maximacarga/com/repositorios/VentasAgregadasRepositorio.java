@@ -0,0 +1,55 @@
+package maximacarga.com.repositorios;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import maximacarga.com.dto.ProductoVendido;
+import maximacarga.com.entidades.Pedido.EstadoPedido;
+
+/**
+ * Escritura y lectura de los agregados diarios de ventas
+ * (tablas ventas_diarias y ventas_producto_diarias).
+ *
+ * Las sumas se hacen con INSERT ... ON DUPLICATE KEY UPDATE, así que dos
+ * escrituras concurrentes no pierden ninguna actualización. Las usa el
+ * volcado periódico de InformeVentasServicio, fuera de la transacción de
+ * los pedidos, con las sumas ya acumuladas de muchos pedidos.
+ */
+public interface VentasAgregadasRepositorio {
+
+    /** Pedidos e importe que sumar (o restar, si son negativos) a un día y estado. */
+    record SumaVentas(LocalDate fecha, EstadoPedido estado, long pedidos, BigDecimal importe) {
+    }
+
+    /** Unidades e importe que sumar (o restar) a un producto en un día. */
+    record SumaProducto(LocalDate fecha, Long productoId, long unidades, BigDecimal importe) {
+    }
+
+    /**
+     * Suma a cada día y estado sus pedidos e importe, en un solo lote JDBC
+     * y en el orden recibido.
+     */
+    void sumarVentas(List<SumaVentas> sumas);
+
+    /**
+     * Suma a cada producto y día sus unidades e importe, en un solo lote JDBC
+     * y en el orden recibido.
+     */
+    void sumarVentasProductos(List<SumaProducto> sumas);
+
+    /**
+     * Productos con más unidades vendidas entre dos días (incluidos).
+     * Lee como mucho una fila por producto y día del periodo.
+     *
+     * @param limite Número máximo de productos.
+     */
+    List<ProductoVendido> productosMasVendidos(LocalDate desde, LocalDate hasta, int limite);
+
+    /**
+     * Vuelve a calcular los agregados de un periodo a partir de los pedidos.
+     * Sirve para corregirlos tras cambios hechos directamente en la base de
+     * datos; recorre todos los pedidos del periodo.
+     */
+    void recalcular(LocalDate desde, LocalDate hasta);
+}
@@ -0,0 +1,95 @@
+package maximacarga.com.repositorios;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import maximacarga.com.dto.ProductoVendido;
+
+/**
+ * Implementación con JDBC de VentasAgregadasRepositorio.
+ */
+public class VentasAgregadasRepositorioImpl implements VentasAgregadasRepositorio {
+
+    private static final String SUMAR_VENTAS =
+            "INSERT INTO ventas_diarias (fecha, estado, pedidos, importe) VALUES (?, ?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE pedidos = pedidos + VALUES(pedidos), importe = importe + VALUES(importe)";
+
+    private static final String SUMAR_VENTAS_PRODUCTOS =
+            "INSERT INTO ventas_producto_diarias (fecha, producto_id, unidades, importe) VALUES (?, ?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE unidades = unidades + VALUES(unidades), importe = importe + VALUES(importe)";
+
+    private static final String MAS_VENDIDOS =
+            "SELECT v.producto_id, p.nombre, SUM(v.unidades) AS unidades, SUM(v.importe) AS importe"
+            + " FROM ventas_producto_diarias v LEFT JOIN productos p ON p.idProducto = v.producto_id"
+            + " WHERE v.fecha BETWEEN ? AND ?"
+            + " GROUP BY v.producto_id, p.nombre"
+            + " HAVING SUM(v.unidades) > 0"
+            + " ORDER BY SUM(v.unidades) DESC, v.producto_id"
+            + " LIMIT ?";
+
+    private static final String RECALCULAR_VENTAS =
+            "INSERT INTO ventas_diarias (fecha, estado, pedidos, importe)"
+            + " SELECT CAST(fecha AS DATE), estado, COUNT(*), SUM(total) FROM pedidos"
+            + " WHERE fecha >= ? AND fecha < ?"
+            + " GROUP BY CAST(fecha AS DATE), estado";
+
+    private static final String RECALCULAR_VENTAS_PRODUCTOS =
+            "INSERT INTO ventas_producto_diarias (fecha, producto_id, unidades, importe)"
+            + " SELECT CAST(p.fecha AS DATE), l.producto_id, SUM(l.cantidad), SUM(l.subtotal)"
+            + " FROM pedidos p JOIN pedido_lineas l ON l.pedido_id = p.id"
+            + " WHERE p.fecha >= ? AND p.fecha < ? AND p.estado <> 'CANCELADO'"
+            + " GROUP BY CAST(p.fecha AS DATE), l.producto_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VentasAgregadasRepositorioImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void sumarVentas(List<SumaVentas> sumas) {
+        if (sumas.isEmpty()) {
+            return;
+        }
+        List<Object[]> filas = sumas.stream()
+                .map(s -> new Object[] { Date.valueOf(s.fecha()), s.estado().name(), s.pedidos(), s.importe() })
+                .toList();
+        jdbcTemplate.batchUpdate(SUMAR_VENTAS, filas);
+    }
+
+    @Override
+    public void sumarVentasProductos(List<SumaProducto> sumas) {
+        if (sumas.isEmpty()) {
+            return;
+        }
+        List<Object[]> filas = sumas.stream()
+                .map(s -> new Object[] { Date.valueOf(s.fecha()), s.productoId(), s.unidades(), s.importe() })
+                .toList();
+        jdbcTemplate.batchUpdate(SUMAR_VENTAS_PRODUCTOS, filas);
+    }
+
+    @Override
+    public List<ProductoVendido> productosMasVendidos(LocalDate desde, LocalDate hasta, int limite) {
+        return jdbcTemplate.query(MAS_VENDIDOS,
+                (rs, i) -> new ProductoVendido(rs.getLong("producto_id"), rs.getString("nombre"),
+                        rs.getLong("unidades"), rs.getBigDecimal("importe")),
+                Date.valueOf(desde), Date.valueOf(hasta), limite);
+    }
+
+    @Override
+    public void recalcular(LocalDate desde, LocalDate hasta) {
+        Date primerDia = Date.valueOf(desde);
+        Date ultimoDia = Date.valueOf(hasta);
+        Timestamp inicio = Timestamp.valueOf(desde.atStartOfDay());
+        Timestamp fin = Timestamp.valueOf(hasta.plusDays(1).atStartOfDay());
+
+        jdbcTemplate.update("DELETE FROM ventas_diarias WHERE fecha BETWEEN ? AND ?", primerDia, ultimoDia);
+        jdbcTemplate.update("DELETE FROM ventas_producto_diarias WHERE fecha BETWEEN ? AND ?", primerDia, ultimoDia);
+        jdbcTemplate.update(RECALCULAR_VENTAS, inicio, fin);
+        jdbcTemplate.update(RECALCULAR_VENTAS_PRODUCTOS, inicio, fin);
+    }
+}
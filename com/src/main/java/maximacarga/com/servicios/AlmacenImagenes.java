@@ -0,0 +1,316 @@
+package maximacarga.com.servicios;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Almacén en disco de las imágenes de productos y fotos de usuario.
+ *
+ * Cada imagen se guarda en {directorio}/{carpeta}/{id} junto a una
+ * miniatura JPEG en {id}-miniatura.jpg. La subida se copia a disco por
+ * bloques mientras se calcula el SHA-256, así que nunca se tiene la
+ * imagen completa en memoria. El tipo de contenido se detecta por los
+ * primeros bytes del fichero, no por lo que diga el cliente.
+ *
+ * Las escrituras de una misma imagen (guardar y eliminar) se hacen de una
+ * en una, con un cerrojo por imagen, para que la fila de metadatos y los
+ * ficheros publicados sean siempre los de la misma subida.
+ */
+@Service
+public class AlmacenImagenes {
+
+    /** Tipo de contenido de todas las miniaturas. */
+    public static final String TIPO_MINIATURA = "image/jpeg";
+
+    /** Límite de píxeles para no descomprimir imágenes gigantes. */
+    private static final long PIXELES_MAXIMOS = 50_000_000L;
+
+    private static final int TAMANIO_BLOQUE = 8192;
+
+    /** Cerrojos repartidos por imagen; dos imágenes pueden compartir uno. */
+    private static final int CERROJOS = 64;
+
+    /**
+     * Resultado de guardar una imagen.
+     *
+     * @param hash SHA-256 en hexadecimal del original.
+     * @param tipoContenido Tipo MIME detectado.
+     * @param tamanio Tamaño del original en bytes.
+     */
+    public record ImagenGuardada(String hash, String tipoContenido, long tamanio) {}
+
+    private final Path directorio;
+    private final int ladoMiniatura;
+    private final long tamanioMaximo;
+    private final ReentrantLock[] cerrojos = new ReentrantLock[CERROJOS];
+
+    public AlmacenImagenes(@Value("${maximacarga.imagenes.directorio}") Path directorio,
+                           @Value("${maximacarga.imagenes.miniatura.lado:256}") int ladoMiniatura,
+                           @Value("${maximacarga.imagenes.tamanio-maximo:10MB}") DataSize tamanioMaximo) {
+        this.directorio = directorio.toAbsolutePath();
+        this.ladoMiniatura = ladoMiniatura;
+        this.tamanioMaximo = tamanioMaximo.toBytes();
+        for (int i = 0; i < CERROJOS; i++) {
+            cerrojos[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Guarda (o reemplaza) una imagen y genera su miniatura.
+     * Los ficheros se escriben primero en temporales, sin cerrojo. Después,
+     * con el cerrojo de la imagen, se guarda la fila de metadatos y se
+     * mueven los ficheros a su sitio: dos subidas a la vez de la misma
+     * imagen no pueden dejar la fila de una y los ficheros de la otra, y
+     * una subida fallida no deja a medias la imagen anterior.
+     *
+     * @param carpeta "productos" o "usuarios".
+     * @param id ID del producto o usuario.
+     * @param entrada Contenido de la imagen; no se cierra.
+     * @param guardarFila Guarda los metadatos (en su propia transacción)
+     *                    antes de publicar los ficheros.
+     * @return Hash, tipo y tamaño del original.
+     * @throws IllegalArgumentException si no es una imagen admitida o es demasiado grande.
+     */
+    public ImagenGuardada guardar(String carpeta, Long id, InputStream entrada,
+                                  Consumer<ImagenGuardada> guardarFila) {
+        Path destino = original(carpeta, id);
+        Path temporal = null;
+        Path temporalMiniatura = null;
+
+        try {
+            Files.createDirectories(destino.getParent());
+            temporal = Files.createTempFile(destino.getParent(), id + "-", ".subida");
+
+            MessageDigest sha256 = Hashes.sha256();
+            byte[] bloque = new byte[TAMANIO_BLOQUE];
+            byte[] cabecera = new byte[12];
+            int enCabecera = 0;
+            long tamanio = 0;
+
+            try (OutputStream salida = Files.newOutputStream(temporal)) {
+                int leidos;
+                while ((leidos = entrada.read(bloque)) != -1) {
+                    tamanio += leidos;
+                    if (tamanio > tamanioMaximo) {
+                        throw new IllegalArgumentException("La imagen supera el tamaño máximo");
+                    }
+                    if (enCabecera < cabecera.length) {
+                        int copiar = Math.min(leidos, cabecera.length - enCabecera);
+                        System.arraycopy(bloque, 0, cabecera, enCabecera, copiar);
+                        enCabecera += copiar;
+                    }
+                    sha256.update(bloque, 0, leidos);
+                    salida.write(bloque, 0, leidos);
+                }
+            }
+
+            String tipo = detectarTipo(cabecera, enCabecera);
+            if (tipo == null) {
+                throw new IllegalArgumentException("Formato de imagen no soportado");
+            }
+
+            temporalMiniatura = Files.createTempFile(destino.getParent(), id + "-", ".miniatura");
+            generarMiniatura(temporal, temporalMiniatura);
+
+            ImagenGuardada guardada = new ImagenGuardada(HexFormat.of().formatHex(sha256.digest()), tipo, tamanio);
+
+            ReentrantLock cerrojo = cerrojo(carpeta, id);
+            cerrojo.lock();
+            try {
+                guardarFila.accept(guardada);
+                Files.move(temporalMiniatura, miniatura(carpeta, id),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.move(temporal, destino,
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                cerrojo.unlock();
+            }
+            return guardada;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo guardar la imagen", e);
+        } finally {
+            borrarSiExiste(temporal);
+            borrarSiExiste(temporalMiniatura);
+        }
+    }
+
+    /**
+     * Ruta del original de una imagen (exista o no).
+     */
+    public Path original(String carpeta, Long id) {
+        return directorio.resolve(carpeta).resolve(String.valueOf(id));
+    }
+
+    /**
+     * Ruta de la miniatura de una imagen (exista o no).
+     */
+    public Path miniatura(String carpeta, Long id) {
+        return directorio.resolve(carpeta).resolve(id + "-miniatura.jpg");
+    }
+
+    /**
+     * Lee un fichero del almacén.
+     *
+     * @return Bytes del fichero o null si no existe.
+     */
+    public byte[] leer(Path ruta) {
+        try {
+            return Files.readAllBytes(ruta);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer la imagen", e);
+        }
+    }
+
+    /**
+     * Elimina el original y la miniatura de una imagen si existen.
+     * Dentro de una transacción se borran tras el commit, para no
+     * perder el fichero si se deshace el borrado de la fila.
+     */
+    public void eliminar(String carpeta, Long id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    borrar(carpeta, id);
+                }
+            });
+        } else {
+            borrar(carpeta, id);
+        }
+    }
+
+    private void borrar(String carpeta, Long id) {
+        ReentrantLock cerrojo = cerrojo(carpeta, id);
+        cerrojo.lock();
+        try {
+            Files.deleteIfExists(original(carpeta, id));
+            Files.deleteIfExists(miniatura(carpeta, id));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo eliminar la imagen", e);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    private ReentrantLock cerrojo(String carpeta, Long id) {
+        return cerrojos[Math.floorMod(carpeta.hashCode() * 31 + id.hashCode(), CERROJOS)];
+    }
+
+    /**
+     * Detecta el tipo por la firma del fichero. Solo se admiten los
+     * formatos que ImageIO sabe leer, para poder generar la miniatura.
+     */
+    static String detectarTipo(byte[] c, int n) {
+        if (n >= 3 && (c[0] & 0xFF) == 0xFF && (c[1] & 0xFF) == 0xD8 && (c[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (n >= 8 && (c[0] & 0xFF) == 0x89 && c[1] == 'P' && c[2] == 'N' && c[3] == 'G'
+                && c[4] == 0x0D && c[5] == 0x0A && c[6] == 0x1A && c[7] == 0x0A) {
+            return "image/png";
+        }
+        if (n >= 6 && c[0] == 'G' && c[1] == 'I' && c[2] == 'F' && c[3] == '8'
+                && (c[4] == '7' || c[4] == '9') && c[5] == 'a') {
+            return "image/gif";
+        }
+        if (n >= 2 && c[0] == 'B' && c[1] == 'M') {
+            return "image/bmp";
+        }
+        return null;
+    }
+
+    /**
+     * Genera una miniatura JPEG que cabe en un cuadrado de ladoMiniatura.
+     * La imagen se decodifica con submuestreo, así que un original grande
+     * no se carga entero en memoria: solo se leen los píxeles necesarios
+     * para el doble de la resolución final.
+     */
+    private void generarMiniatura(Path origen, Path destino) throws IOException {
+        BufferedImage imagen;
+
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(origen.toFile())) {
+            Iterator<ImageReader> lectores = ImageIO.getImageReaders(entrada);
+            if (!lectores.hasNext()) {
+                throw new IllegalArgumentException("Formato de imagen no soportado");
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                int ancho = lector.getWidth(0);
+                int alto = lector.getHeight(0);
+                if ((long) ancho * alto > PIXELES_MAXIMOS) {
+                    throw new IllegalArgumentException("La imagen tiene demasiados píxeles");
+                }
+
+                ImageReadParam parametros = lector.getDefaultReadParam();
+                int paso = Math.max(1, Math.max(ancho, alto) / (ladoMiniatura * 2));
+                parametros.setSourceSubsampling(paso, paso, 0, 0);
+                imagen = lector.read(0, parametros);
+            } finally {
+                lector.dispose();
+            }
+        } catch (IIOException e) {
+            throw new IllegalArgumentException("La imagen está dañada", e);
+        }
+
+        double escala = Math.min(1.0, (double) ladoMiniatura / Math.max(imagen.getWidth(), imagen.getHeight()));
+        int ancho = Math.max(1, (int) Math.round(imagen.getWidth() * escala));
+        int alto = Math.max(1, (int) Math.round(imagen.getHeight() * escala));
+
+        // JPEG no tiene transparencia: se pinta sobre fondo blanco
+        BufferedImage reducida = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = reducida.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, ancho, alto);
+            g.drawImage(imagen, 0, 0, ancho, alto, null);
+        } finally {
+            g.dispose();
+        }
+
+        if (!ImageIO.write(reducida, "jpg", destino.toFile())) {
+            throw new IllegalStateException("No hay escritor JPEG disponible");
+        }
+    }
+
+    private static void borrarSiExiste(Path ruta) {
+        if (ruta == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(ruta);
+        } catch (IOException ignorada) {
+            // Un temporal huérfano no afecta a la imagen guardada
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package maximacarga.com.servicios;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import io.micrometer.core.annotation.Timed;
+import maximacarga.com.dto.PedidoDTO;
+import maximacarga.com.dto.PedidoLineaDTO;
+import maximacarga.com.entidades.Pedido.EstadoPedido;
+import maximacarga.com.repositorios.PedidoRepositorio;
+
+/**
+ * Exportación del histórico de pedidos para el panel de administración.
+ *
+ * Los pedidos se leen por bloques (PedidoExportacionRepositorio) y cada
+ * uno se escribe en la salida en cuanto se ha leído, así que la memoria
+ * usada no depende del número de pedidos y el tiempo crece de forma lineal.
+ */
+@Service
+@Timed("maximacarga.servicio")
+public class ExportacionPedidosServicio {
+
+    /**
+     * Formatos de exportación.
+     * CSV tiene una fila por línea de pedido (los datos del pedido se repiten);
+     * NDJSON tiene un pedido por línea con el mismo JSON que GET /api/pedidos.
+     */
+    public enum Formato {
+        CSV("text/csv;charset=UTF-8", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String tipoContenido;
+        private final String extension;
+
+        Formato(String tipoContenido, String extension) {
+            this.tipoContenido = tipoContenido;
+            this.extension = extension;
+        }
+
+        public String getTipoContenido() {
+            return tipoContenido;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @throws IllegalArgumentException si no es csv ni ndjson.
+         */
+        public static Formato de(String nombre) {
+            try {
+                return valueOf(nombre.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Formato de exportación no válido: " + nombre);
+            }
+        }
+    }
+
+    private static final String CABECERA_CSV = "pedido_id,usuario_id,fecha,fecha_entrega,estado,subtotal,total,"
+            + "linea_id,producto_id,nombre_producto,precio_unitario,cantidad,subtotal_linea";
+
+    /** Buffer de escritura: la respuesta se envía en trozos de este tamaño. */
+    private static final int TAMANIO_BUFFER = 64 * 1024;
+
+    private final PedidoRepositorio pedidoRepo;
+    private final ObjectMapper objectMapper;
+
+    public ExportacionPedidosServicio(PedidoRepositorio pedidoRepo, ObjectMapper objectMapper) {
+        this.pedidoRepo = pedidoRepo;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Escribe los pedidos que cumplen los filtros en la salida.
+     * Todos los filtros son opcionales.
+     *
+     * La transacción (y su conexión) dura lo que tarde en enviarse la
+     * exportación; a cambio todo el fichero sale de la misma foto de los datos.
+     * La salida no se cierra.
+     *
+     * @param formato CSV o NDJSON.
+     * @param estado Estado del pedido.
+     * @param usuarioId ID del usuario.
+     * @param desde Fecha mínima incluida.
+     * @param hasta Fecha máxima excluida.
+     * @param salida Donde se escribe (normalmente la respuesta HTTP).
+     */
+    @Transactional(readOnly = true)
+    public void exportar(Formato formato, EstadoPedido estado, Long usuarioId,
+                         LocalDateTime desde, LocalDateTime hasta, OutputStream salida) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8), TAMANIO_BUFFER);
+        try {
+            if (formato == Formato.CSV) {
+                exportarCsv(estado, usuarioId, desde, hasta, escritor);
+            } else {
+                exportarNdjson(estado, usuarioId, desde, hasta, escritor);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        escritor.flush();
+    }
+
+    private void exportarCsv(EstadoPedido estado, Long usuarioId, LocalDateTime desde, LocalDateTime hasta,
+                             Writer escritor) throws IOException {
+        escritor.write(CABECERA_CSV);
+        escritor.write("\r\n");
+
+        StringBuilder fila = new StringBuilder(256);
+        pedidoRepo.recorrerConLineas(estado, usuarioId, desde, hasta, pedido -> {
+            try {
+                if (pedido.lineas().isEmpty()) {
+                    escribirFila(fila, pedido, null, escritor);
+                }
+                for (PedidoLineaDTO linea : pedido.lineas()) {
+                    escribirFila(fila, pedido, linea, escritor);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static void escribirFila(StringBuilder fila, PedidoDTO pedido, PedidoLineaDTO linea,
+                                     Writer escritor) throws IOException {
+        fila.setLength(0);
+        fila.append(pedido.id()).append(',')
+                .append(pedido.usuarioId()).append(',')
+                .append(fecha(pedido.fecha())).append(',')
+                .append(fecha(pedido.fechaEntrega())).append(',')
+                .append(pedido.estado()).append(',')
+                .append(numero(pedido.subtotal())).append(',')
+                .append(numero(pedido.total())).append(',');
+        if (linea != null) {
+            fila.append(linea.id()).append(',')
+                    .append(linea.productoId()).append(',');
+            texto(fila, linea.nombreProducto());
+            fila.append(',')
+                    .append(numero(linea.precioUnitario())).append(',')
+                    .append(linea.cantidad()).append(',')
+                    .append(numero(linea.subtotal()));
+        } else {
+            fila.append(",,,,,");
+        }
+        fila.append("\r\n");
+        escritor.append(fila);
+    }
+
+    private void exportarNdjson(EstadoPedido estado, Long usuarioId, LocalDateTime desde, LocalDateTime hasta,
+                                Writer escritor) throws IOException {
+        // Sin separador entre valores: cada pedido termina en su propio salto de línea
+        JsonGenerator generador = objectMapper.getFactory().createGenerator(escritor);
+        generador.setRootValueSeparator(null);
+        ObjectWriter json = objectMapper.writerFor(PedidoDTO.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        pedidoRepo.recorrerConLineas(estado, usuarioId, desde, hasta, pedido -> {
+            try {
+                json.writeValue(generador, pedido);
+                generador.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        generador.flush();
+    }
+
+    private static String fecha(LocalDateTime fecha) {
+        return fecha == null ? "" : DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(fecha);
+    }
+
+    private static String numero(BigDecimal numero) {
+        return numero == null ? "" : numero.toPlainString();
+    }
+
+    /** Entrecomilla el texto si lleva comas, comillas o saltos de línea (RFC 4180). */
+    private static void texto(StringBuilder fila, String valor) {
+        if (valor == null) {
+            return;
+        }
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            fila.append(valor);
+            return;
+        }
+        fila.append('"').append(valor.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,116 @@
+package maximacarga.com.servicios;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collection;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.annotation.Timed;
+import maximacarga.com.dto.MetadatosImagen;
+import maximacarga.com.entidades.FotoUsuario;
+import maximacarga.com.repositorios.FotoUsuarioRepositorio;
+
+/**
+ * Servicio que gestiona el almacenamiento de las fotos de perfil.
+ * Las fotos viven separadas de la fila del usuario para que el login
+ * y los listados no tengan que leer los bytes. Los ficheros están en
+ * AlmacenImagenes y usuario_fotos guarda sus metadatos.
+ */
+@Service
+@Timed("maximacarga.servicio")
+public class FotoUsuarioServicio {
+
+    private static final String CARPETA = "usuarios";
+
+    private final FotoUsuarioRepositorio fotoRepositorio;
+    private final AlmacenImagenes almacen;
+
+    public FotoUsuarioServicio(FotoUsuarioRepositorio fotoRepositorio,
+                               AlmacenImagenes almacen) {
+        this.fotoRepositorio = fotoRepositorio;
+        this.almacen = almacen;
+    }
+
+    /**
+     * Guarda (o reemplaza) la foto de un usuario.
+     */
+    public void guardarFoto(Long idUsuario, byte[] datos) {
+        guardarFoto(idUsuario, new ByteArrayInputStream(datos));
+    }
+
+    /**
+     * Guarda (o reemplaza) la foto de un usuario leyéndola por bloques.
+     * Lanza IllegalArgumentException si no es una imagen admitida.
+     */
+    public void guardarFoto(Long idUsuario, InputStream datos) {
+        almacen.guardar(CARPETA, idUsuario, datos, guardada ->
+                fotoRepositorio.save(new FotoUsuario(idUsuario, null, guardada.hash(),
+                        guardada.tipoContenido(), guardada.tamanio(), Instant.now())));
+    }
+
+    /**
+     * Obtiene el hash y la fecha de modificación de la foto de un usuario
+     * sin leer los bytes.
+     * Devuelve null si no tiene.
+     */
+    @Transactional(readOnly = true)
+    public MetadatosImagen obtenerMetadatos(Long idUsuario) {
+        return fotoRepositorio.findMetadatosById(idUsuario).orElse(null);
+    }
+
+    /**
+     * Obtiene los bytes de la foto de un usuario.
+     * Devuelve null si no tiene.
+     */
+    @Transactional(readOnly = true)
+    public byte[] obtenerFoto(Long idUsuario) {
+        FotoUsuario foto = fotoRepositorio.findById(idUsuario).orElse(null);
+        if (foto == null) {
+            return null;
+        }
+        if (foto.getDatos() != null) {
+            return foto.getDatos();
+        }
+        return almacen.leer(almacen.original(CARPETA, idUsuario));
+    }
+
+    /**
+     * Fichero con el original de la foto de un usuario, para servirla
+     * sin cargarla en memoria. Puede no existir (fotos antiguas).
+     */
+    public Path ficheroFoto(Long idUsuario) {
+        return almacen.original(CARPETA, idUsuario);
+    }
+
+    /**
+     * Fichero con la miniatura (JPEG) de la foto de un usuario.
+     * Puede no existir (fotos antiguas).
+     */
+    public Path ficheroMiniatura(Long idUsuario) {
+        return almacen.miniatura(CARPETA, idUsuario);
+    }
+
+    /**
+     * Elimina del disco las fotos de varios usuarios cuyas filas ya se
+     * han borrado (por ejemplo, en la purga de cuentas inactivas).
+     * Dentro de una transacción se borran tras el commit.
+     */
+    public void eliminarFicheros(Collection<Long> idsUsuario) {
+        idsUsuario.forEach(id -> almacen.eliminar(CARPETA, id));
+    }
+
+    /**
+     * Elimina la foto de un usuario si existe.
+     */
+    @Transactional
+    public void eliminarFoto(Long idUsuario) {
+        if (fotoRepositorio.existsById(idUsuario)) {
+            fotoRepositorio.deleteById(idUsuario);
+        }
+        almacen.eliminar(CARPETA, idUsuario);
+    }
+}
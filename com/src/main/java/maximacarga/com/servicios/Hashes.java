@@ -0,0 +1,32 @@
+package maximacarga.com.servicios;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Cálculo de hashes SHA-256 para el contenido de las imágenes
+ * y para los tokens de recuperación que se guardan en la base de datos.
+ */
+final class Hashes {
+
+    private Hashes() {}
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Todas las JVM están obligadas a incluir SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String sha256(byte[] datos) {
+        return HexFormat.of().formatHex(sha256().digest(datos));
+    }
+
+    static String sha256(String texto) {
+        return sha256(texto.getBytes(StandardCharsets.UTF_8));
+    }
+}
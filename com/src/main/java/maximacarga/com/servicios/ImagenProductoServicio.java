@@ -0,0 +1,127 @@
+package maximacarga.com.servicios;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.annotation.Timed;
+import maximacarga.com.dto.MetadatosImagen;
+import maximacarga.com.entidades.ImagenProducto;
+import maximacarga.com.repositorios.ImagenProductoRepositorio;
+
+/**
+ * Servicio que gestiona el almacenamiento de las imágenes de productos.
+ * Las imágenes viven separadas de la fila del producto para que
+ * listar el catálogo no tenga que leer los bytes. Los ficheros están en
+ * AlmacenImagenes; la tabla producto_imagenes guarda sus metadatos
+ * (y los bytes de las imágenes antiguas, anteriores al almacén en disco).
+ */
+@Service
+@Timed("maximacarga.servicio")
+public class ImagenProductoServicio {
+
+    private static final String CARPETA = "productos";
+
+    private final ImagenProductoRepositorio imagenRepositorio;
+    private final AlmacenImagenes almacen;
+
+    public ImagenProductoServicio(ImagenProductoRepositorio imagenRepositorio,
+                                  AlmacenImagenes almacen) {
+        this.imagenRepositorio = imagenRepositorio;
+        this.almacen = almacen;
+    }
+
+    /**
+     * Guarda (o reemplaza) la imagen de un producto recibida en el JSON.
+     *
+     * @param idProducto ID del producto.
+     * @param datos Bytes de la imagen.
+     */
+    public void guardarImagen(Long idProducto, byte[] datos) {
+        guardarImagen(idProducto, new ByteArrayInputStream(datos));
+    }
+
+    /**
+     * Guarda (o reemplaza) la imagen de un producto leyéndola por bloques.
+     * El fichero y su miniatura se escriben en temporales antes de tocar
+     * la base de datos, así que no se abre transacción mientras dura la subida.
+     *
+     * @param idProducto ID del producto.
+     * @param datos Contenido de la imagen.
+     * @throws IllegalArgumentException si no es una imagen admitida.
+     */
+    public void guardarImagen(Long idProducto, InputStream datos) {
+        almacen.guardar(CARPETA, idProducto, datos, guardada ->
+                imagenRepositorio.save(new ImagenProducto(idProducto, null, guardada.hash(),
+                        guardada.tipoContenido(), guardada.tamanio(), Instant.now())));
+    }
+
+    /**
+     * Obtiene el hash y la fecha de modificación de la imagen de un producto
+     * sin leer los bytes.
+     * Devuelve null si no tiene.
+     */
+    @Transactional(readOnly = true)
+    public MetadatosImagen obtenerMetadatos(Long idProducto) {
+        return imagenRepositorio.findMetadatosById(idProducto).orElse(null);
+    }
+
+    /**
+     * Obtiene los bytes de la imagen de un producto.
+     * Para servirla por HTTP se usa ficheroImagen; esto queda para
+     * las imágenes antiguas guardadas en la propia tabla.
+     *
+     * @param idProducto ID del producto.
+     * @return Bytes de la imagen o null si no tiene.
+     */
+    @Transactional(readOnly = true)
+    public byte[] obtenerImagen(Long idProducto) {
+        ImagenProducto imagen = imagenRepositorio.findById(idProducto).orElse(null);
+        if (imagen == null) {
+            return null;
+        }
+        if (imagen.getDatos() != null) {
+            return imagen.getDatos();
+        }
+        return almacen.leer(almacen.original(CARPETA, idProducto));
+    }
+
+    /**
+     * Fichero con el original de la imagen de un producto, para servirlo
+     * sin cargarlo en memoria. Puede no existir (imágenes antiguas).
+     *
+     * @param idProducto ID del producto.
+     * @return Ruta del original.
+     */
+    public Path ficheroImagen(Long idProducto) {
+        return almacen.original(CARPETA, idProducto);
+    }
+
+    /**
+     * Fichero con la miniatura (JPEG) de la imagen de un producto.
+     * Puede no existir (imágenes antiguas).
+     *
+     * @param idProducto ID del producto.
+     * @return Ruta de la miniatura.
+     */
+    public Path ficheroMiniatura(Long idProducto) {
+        return almacen.miniatura(CARPETA, idProducto);
+    }
+
+    /**
+     * Elimina la imagen de un producto si existe.
+     *
+     * @param idProducto ID del producto.
+     */
+    @Transactional
+    public void eliminarImagen(Long idProducto) {
+        if (imagenRepositorio.existsById(idProducto)) {
+            imagenRepositorio.deleteById(idProducto);
+        }
+        almacen.eliminar(CARPETA, idProducto);
+    }
+}
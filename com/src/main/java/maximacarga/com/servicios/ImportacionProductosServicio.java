@@ -0,0 +1,228 @@
+package maximacarga.com.servicios;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import io.micrometer.core.annotation.Timed;
+import maximacarga.com.dto.ResultadoImportacion;
+import maximacarga.com.dto.ResultadoImportacion.Fila;
+import maximacarga.com.dto.ResultadoImportacion.Resultado;
+import maximacarga.com.entidades.Producto;
+import maximacarga.com.repositorios.ProductoRepositorio;
+
+/**
+ * Importación masiva de productos desde CSV o desde un array JSON.
+ *
+ * El fichero se lee fila a fila (MappingIterator de Jackson), sin cargarlo
+ * entero. Cada fila se valida con las mismas reglas que POST /api/productos
+ * y las válidas se guardan por lotes: cada lote es una transacción con un
+ * lote JDBC de INSERT (filas sin idProducto) y otro de UPDATE (filas con
+ * idProducto). Si un lote falla se deshace solo ese lote y sus filas salen
+ * como error; los anteriores ya quedan guardados. Las filas de un lote
+ * se añaden al índice de búsqueda cuando se confirma.
+ */
+@Service
+@Timed("maximacarga.servicio")
+public class ImportacionProductosServicio {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportacionProductosServicio.class);
+
+    /** Formatos de entrada admitidos. */
+    public enum Formato { CSV, JSON }
+
+    private final ProductoRepositorio productoRepositorio;
+    private final ProductoServicio productoServicio;
+    private final IndiceBusquedaProductos indice;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper;
+    private final TransactionTemplate transaccion;
+    private final int lote;
+
+    public ImportacionProductosServicio(ProductoRepositorio productoRepositorio,
+                                        ProductoServicio productoServicio,
+                                        IndiceBusquedaProductos indice,
+                                        ObjectMapper objectMapper,
+                                        PlatformTransactionManager transactionManager,
+                                        @Value("${maximacarga.importacion.lote:1000}") int lote) {
+        this.productoRepositorio = productoRepositorio;
+        this.productoServicio = productoServicio;
+        this.indice = indice;
+        this.objectMapper = objectMapper;
+        this.csvMapper = CsvMapper.builder()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .enable(CsvParser.Feature.TRIM_SPACES)
+                .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .build();
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.lote = lote;
+    }
+
+    /**
+     * Importa los productos del fichero.
+     *
+     * CSV: primera fila con los nombres de las columnas (idProducto, nombre,
+     * descripcion, precio, stock), en cualquier orden; idProducto vacío crea
+     * un producto nuevo. JSON: array de productos con el mismo formato que
+     * POST /api/productos, más idProducto para actualizar uno existente.
+     * Las imágenes no se importan: se suben después con POST /api/productos/{id}/imagen.
+     *
+     * Si el fichero está mal formado se para en esa fila y se devuelve
+     * el informe de lo importado hasta entonces.
+     *
+     * @param formato CSV o JSON.
+     * @param entrada Contenido del fichero; no se cierra.
+     * @return Resultado de cada fila.
+     */
+    public ResultadoImportacion importar(Formato formato, InputStream entrada) throws IOException {
+        List<Fila> informe = new ArrayList<>();
+        List<FilaPendiente> pendientes = new ArrayList<>(lote);
+
+        try (MappingIterator<Producto> filas = lector(formato, entrada)) {
+            long numero = 0;
+            while (true) {
+                numero++;
+                Producto producto;
+                try {
+                    if (!filas.hasNextValue()) {
+                        break;
+                    }
+                    producto = filas.nextValue();
+                } catch (JsonMappingException e) {
+                    // Valor de tipo incorrecto: se salta solo esta fila
+                    informe.add(error(numero, "Fila no válida: " + e.getOriginalMessage()));
+                    continue;
+                } catch (JsonProcessingException e) {
+                    informe.add(error(numero, "Fichero mal formado: " + e.getOriginalMessage()));
+                    break;
+                }
+
+                String motivo = motivoError(producto);
+                if (motivo != null) {
+                    informe.add(error(numero, motivo));
+                    continue;
+                }
+
+                pendientes.add(new FilaPendiente(numero, producto));
+                if (pendientes.size() >= lote) {
+                    guardarLote(pendientes, informe);
+                }
+            }
+        }
+        guardarLote(pendientes, informe);
+        // Las filas con error se apuntan al leerlas y las válidas al guardar su lote
+        informe.sort(Comparator.comparingLong(Fila::fila));
+
+        long creados = informe.stream().filter(f -> f.resultado() == Resultado.CREADO).count();
+        long actualizados = informe.stream().filter(f -> f.resultado() == Resultado.ACTUALIZADO).count();
+        log.info("Importación de productos: {} creados, {} actualizados, {} con error",
+                creados, actualizados, informe.size() - creados - actualizados);
+        return new ResultadoImportacion(creados, actualizados, informe.size() - creados - actualizados, informe);
+    }
+
+    private MappingIterator<Producto> lector(Formato formato, InputStream entrada) throws IOException {
+        if (formato == Formato.CSV) {
+            return csvMapper.readerFor(Producto.class)
+                    .with(CsvSchema.emptySchema().withHeader())
+                    .readValues(entrada);
+        }
+        return objectMapper.readerFor(Producto.class).readValues(entrada);
+    }
+
+    /** Misma validación que POST /api/productos; null si la fila es válida. */
+    private static String motivoError(Producto producto) {
+        if (producto.getImagenProducto() != null) {
+            return "Las imágenes no se importan: súbela con POST /api/productos/{id}/imagen";
+        }
+        try {
+            ProductoServicio.validar(producto);
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Guarda las filas pendientes en una transacción y las añade al informe.
+     * El informe solo se completa si la transacción se confirma.
+     */
+    private void guardarLote(List<FilaPendiente> pendientes, List<Fila> informe) {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+        try {
+            List<Fila> guardadas = transaccion.execute(estado -> {
+                List<Producto> nuevos = new ArrayList<>();
+                List<Producto> actualizados = new ArrayList<>();
+                Set<Long> existentes = productoRepositorio.existentes(pendientes.stream()
+                        .map(p -> p.producto().getIdProducto())
+                        .filter(id -> id != null)
+                        .toList());
+
+                for (FilaPendiente pendiente : pendientes) {
+                    Long id = pendiente.producto().getIdProducto();
+                    if (id == null) {
+                        nuevos.add(pendiente.producto());
+                    } else if (existentes.contains(id)) {
+                        actualizados.add(pendiente.producto());
+                    }
+                }
+
+                productoRepositorio.actualizarLote(actualizados);
+                List<Long> ids = productoRepositorio.insertarLote(nuevos);
+
+                List<Fila> resultado = new ArrayList<>(pendientes.size());
+                int siguienteNuevo = 0;
+                for (FilaPendiente pendiente : pendientes) {
+                    Producto producto = pendiente.producto();
+                    Long id = producto.getIdProducto();
+                    if (id == null) {
+                        Long nuevo = ids.get(siguienteNuevo++);
+                        indice.indexarTrasCommit(nuevo, producto.getNombre(), producto.getDescripcion());
+                        resultado.add(new Fila(pendiente.numero(), nuevo, Resultado.CREADO, null));
+                    } else if (existentes.contains(id)) {
+                        indice.indexarTrasCommit(id, producto.getNombre(), producto.getDescripcion());
+                        resultado.add(new Fila(pendiente.numero(), id, Resultado.ACTUALIZADO, null));
+                    } else {
+                        resultado.add(error(pendiente.numero(), "Producto no encontrado: " + id));
+                    }
+                }
+                return resultado;
+            });
+            informe.addAll(guardadas);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo guardar un lote de {} productos importados", pendientes.size(), e);
+            for (FilaPendiente pendiente : pendientes) {
+                informe.add(error(pendiente.numero(), "No se pudo guardar el lote: " + e.getMessage()));
+            }
+        } finally {
+            pendientes.clear();
+            productoServicio.invalidarCatalogo();
+        }
+    }
+
+    private static Fila error(long numero, String mensaje) {
+        return new Fila(numero, null, Resultado.ERROR, mensaje);
+    }
+
+    private record FilaPendiente(long numero, Producto producto) {}
+}
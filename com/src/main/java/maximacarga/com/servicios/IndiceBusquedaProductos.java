@@ -0,0 +1,540 @@
+package maximacarga.com.servicios;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Índice invertido en memoria para buscar productos por nombre y descripción.
+ *
+ * Los textos se parten en palabras, en minúsculas y sin acentos
+ * ("Camión" y "camion" son la misma palabra). Cada palabra guarda la lista
+ * ordenada de los productos que la contienen, y las palabras están en un
+ * mapa ordenado, así que las que empiezan por un prefijo son un rango.
+ *
+ * Una búsqueda recorre los productos de la palabra de la consulta con
+ * menos productos y los cruza con las listas del resto de palabras; solo
+ * se puntúan los que tienen todas. Cada palabra puntúa por lo mejor que
+ * encuentre: completa en el nombre, prefijo en el nombre, completa en la
+ * descripción y prefijo en la descripción, en ese orden. A igualdad de
+ * puntos gana el de alta más antigua en el índice. El recorrido para en
+ * cuanto hay suficientes resultados con la puntuación más alta posible.
+ *
+ * Internamente cada producto tiene un número consecutivo, que es lo que
+ * guardan las listas de las palabras (int en vez de Long). Los huecos de
+ * los productos borrados no se reutilizan.
+ *
+ * ProductoServicio lo carga al arrancar y lo actualiza en cada alta,
+ * modificación y baja (tras el commit). Las búsquedas van en paralelo;
+ * las escrituras bloquean el índice mientras cambian un producto.
+ */
+@Service
+public class IndiceBusquedaProductos {
+
+    /** Palabras de la consulta que se tienen en cuenta. */
+    static final int PALABRAS_CONSULTA_MAXIMAS = 8;
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Puntos por palabra de la consulta según dónde y cómo aparece
+    private static final int NOMBRE_COMPLETA = 4;
+    private static final int NOMBRE_PREFIJO = 3;
+    private static final int DESCRIPCION_COMPLETA = 2;
+    private static final int DESCRIPCION_PREFIJO = 1;
+
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private final TreeMap<String, Lista> palabras = new TreeMap<>();
+    private final Map<Long, Integer> numeros = new HashMap<>();
+    private final List<Documento> documentos = new ArrayList<>();
+
+    /** IDs quitados mientras dura la carga inicial (null fuera de ella). */
+    private Set<Long> quitadosEnCarga;
+
+    /**
+     * Palabras de un producto, ordenadas y sin repetir. Las de la
+     * descripción no incluyen las que ya están en el nombre.
+     */
+    private record Documento(long id, String[] nombre, String[] descripcion) {}
+
+    /**
+     * Parte un texto en palabras en minúsculas y sin acentos ni diéresis
+     * (la ñ queda como n). Todo lo que no es letra o número separa palabras.
+     */
+    public static List<String> palabras(String texto) {
+        if (texto == null || texto.isEmpty()) {
+            return List.of();
+        }
+        String plano = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> resultado = new ArrayList<>();
+        for (String palabra : SEPARADORES.split(plano)) {
+            if (!palabra.isEmpty()) {
+                resultado.add(palabra);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Añade o reemplaza un producto en el índice.
+     */
+    public void indexar(Long id, String nombre, String descripcion) {
+        Documento documento = documento(id, nombre, descripcion);
+        cerrojo.writeLock().lock();
+        try {
+            Integer numero = numeros.get(id);
+            if (numero == null) {
+                agregarSinCerrojo(documento);
+            } else {
+                desapuntar(numero, documentos.get(numero));
+                apuntar(numero, documento);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Empieza la carga inicial: desde aquí hasta terminarCarga se apuntan
+     * los productos quitados, para que indexarSiFalta no vuelva a añadir
+     * uno borrado después de leer su página.
+     */
+    public void empezarCarga() {
+        cerrojo.writeLock().lock();
+        try {
+            quitadosEnCarga = new HashSet<>();
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Termina la carga inicial y olvida los productos quitados durante ella.
+     */
+    public void terminarCarga() {
+        cerrojo.writeLock().lock();
+        try {
+            quitadosEnCarga = null;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Añade un producto solo si no está ya y no se ha quitado durante la
+     * carga. Es la carga inicial: si mientras tanto se ha modificado o
+     * borrado el producto, gana ese cambio.
+     */
+    public void indexarSiFalta(Long id, String nombre, String descripcion) {
+        Documento documento = documento(id, nombre, descripcion);
+        cerrojo.writeLock().lock();
+        try {
+            if (!numeros.containsKey(id) && (quitadosEnCarga == null || !quitadosEnCarga.contains(id))) {
+                agregarSinCerrojo(documento);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quita un producto del índice si está.
+     */
+    public void quitar(Long id) {
+        cerrojo.writeLock().lock();
+        try {
+            if (quitadosEnCarga != null) {
+                quitadosEnCarga.add(id);
+            }
+            Integer numero = numeros.remove(id);
+            if (numero != null) {
+                desapuntar(numero, documentos.get(numero));
+                documentos.set(numero, null);
+            }
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Igual que indexar, pero dentro de una transacción se aplica al
+     * confirmarla, para no encontrar productos de un alta deshecha.
+     */
+    public void indexarTrasCommit(Long id, String nombre, String descripcion) {
+        trasCommit(() -> indexar(id, nombre, descripcion));
+    }
+
+    /**
+     * Igual que quitar, pero dentro de una transacción se aplica al confirmarla.
+     */
+    public void quitarTrasCommit(Long id) {
+        trasCommit(() -> quitar(id));
+    }
+
+    private static void trasCommit(Runnable cambio) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cambio.run();
+                }
+            });
+        } else {
+            cambio.run();
+        }
+    }
+
+    /**
+     * Número de productos indexados.
+     */
+    public int tamanio() {
+        cerrojo.readLock().lock();
+        try {
+            return numeros.size();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca los productos que contienen todas las palabras de la consulta,
+     * cada una como palabra completa o como principio de una palabra
+     * ("torn" encuentra "tornillo").
+     *
+     * @param consulta Texto buscado.
+     * @param limite Número máximo de resultados.
+     * @return IDs de los productos, de más a menos relevante.
+     */
+    public List<Long> buscar(String consulta, int limite) {
+        List<String> buscadas = new ArrayList<>(new LinkedHashSet<>(palabras(consulta)));
+        if (buscadas.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+        if (buscadas.size() > PALABRAS_CONSULTA_MAXIMAS) {
+            buscadas = buscadas.subList(0, PALABRAS_CONSULTA_MAXIMAS);
+        }
+
+        cerrojo.readLock().lock();
+        try {
+            // Se recorre la palabra con menos productos y se cruza con las demás,
+            // de la más a la menos selectiva para descartar cuanto antes
+            List<Palabra> analizadas = new ArrayList<>(buscadas.size());
+            int maxima = 0;
+            for (String buscada : buscadas) {
+                Palabra palabra = analizar(buscada);
+                if (palabra.productos() == 0) {
+                    return List.of();
+                }
+                analizadas.add(palabra);
+                maxima += palabra.maxima();
+            }
+            analizadas.sort(Comparator.comparingLong(Palabra::productos));
+
+            Productos candidatos = new Productos(analizadas.get(0).rango(), documentos.size());
+            Productos[] filtros = new Productos[analizadas.size() - 1];
+            for (int i = 0; i < filtros.length; i++) {
+                filtros[i] = new Productos(analizadas.get(i + 1).rango(), documentos.size());
+            }
+
+            // Claves puntos << 32 | (MAX - número): el montículo tiene arriba el peor
+            PriorityQueue<Long> mejores = new PriorityQueue<>(limite + 1);
+            for (int numero = candidatos.siguiente(); numero >= 0; numero = candidatos.siguiente()) {
+                if (!enTodos(filtros, numero)) {
+                    continue;
+                }
+                int puntos = puntuar(documentos.get(numero), buscadas);
+                if (puntos == 0) {
+                    continue;
+                }
+                mejores.offer(((long) puntos << 32) | (Integer.MAX_VALUE - numero));
+                if (mejores.size() > limite) {
+                    mejores.poll();
+                }
+                // Los siguientes solo podrían empatar, y a igualdad gana el anterior
+                if (mejores.size() == limite && (mejores.peek() >>> 32) >= maxima) {
+                    break;
+                }
+            }
+
+            Long[] ordenados = new Long[mejores.size()];
+            for (int i = ordenados.length - 1; i >= 0; i--) {
+                int numero = Integer.MAX_VALUE - (int) (mejores.poll() & 0xFFFFFFFFL);
+                ordenados[i] = documentos.get(numero).id();
+            }
+            return Arrays.asList(ordenados);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    private static boolean enTodos(Productos[] filtros, int numero) {
+        for (Productos filtro : filtros) {
+            if (!filtro.contiene(numero)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rango de palabras del índice que empiezan por una palabra de la
+     * consulta, con su número de productos (con repeticiones) y los puntos
+     * máximos que puede dar: 4 si está completa en algún nombre, 3 si
+     * algún nombre tiene una palabra que empieza por ella, 2 o 1 si solo
+     * aparece en descripciones.
+     */
+    private record Palabra(Collection<Lista> rango, long productos, int maxima) {}
+
+    private Palabra analizar(String palabra) {
+        Collection<Lista> rango = palabras.subMap(palabra, true, palabra + Character.MAX_VALUE, false).values();
+        Lista exacta = palabras.get(palabra);
+        long productos = 0;
+        boolean enNombre = false;
+        for (Lista lista : rango) {
+            productos += lista.tamanio;
+            enNombre |= lista.enNombre > 0;
+        }
+
+        int maxima;
+        if (exacta != null && exacta.enNombre > 0) {
+            maxima = NOMBRE_COMPLETA;
+        } else if (enNombre) {
+            maxima = NOMBRE_PREFIJO;
+        } else {
+            maxima = exacta != null ? DESCRIPCION_COMPLETA : DESCRIPCION_PREFIJO;
+        }
+        return new Palabra(rango, productos, maxima);
+    }
+
+    private static Documento documento(Long id, String nombre, String descripcion) {
+        Set<String> delNombre = new LinkedHashSet<>(palabras(nombre));
+        Set<String> deLaDescripcion = new LinkedHashSet<>(palabras(descripcion));
+        deLaDescripcion.removeAll(delNombre);
+
+        String[] n = delNombre.toArray(String[]::new);
+        String[] d = deLaDescripcion.toArray(String[]::new);
+        Arrays.sort(n);
+        Arrays.sort(d);
+        return new Documento(id, n, d);
+    }
+
+    private void agregarSinCerrojo(Documento documento) {
+        int numero = documentos.size();
+        documentos.add(null);
+        numeros.put(documento.id(), numero);
+        apuntar(numero, documento);
+    }
+
+    /**
+     * Guarda el documento y lo apunta en cada una de sus palabras.
+     * Las palabras del documento pasan a ser las cadenas que ya guarda
+     * el mapa, para no repetir la misma palabra en cada producto.
+     */
+    private void apuntar(int numero, Documento documento) {
+        apuntar(numero, documento.nombre(), true);
+        apuntar(numero, documento.descripcion(), false);
+        documentos.set(numero, documento);
+    }
+
+    private void apuntar(int numero, String[] lista, boolean nombre) {
+        for (int i = 0; i < lista.length; i++) {
+            Lista productos = palabras.computeIfAbsent(lista[i], Lista::new);
+            productos.agregar(numero, nombre);
+            lista[i] = productos.palabra;
+        }
+    }
+
+    private void desapuntar(int numero, Documento documento) {
+        desapuntar(numero, documento.nombre(), true);
+        desapuntar(numero, documento.descripcion(), false);
+    }
+
+    private void desapuntar(int numero, String[] lista, boolean nombre) {
+        for (String palabra : lista) {
+            Lista productos = palabras.get(palabra);
+            if (productos != null && productos.quitar(numero, nombre) && productos.tamanio == 0) {
+                palabras.remove(palabra);
+            }
+        }
+    }
+
+    /**
+     * Puntos del documento para la consulta, o 0 si le falta alguna palabra.
+     */
+    private static int puntuar(Documento documento, List<String> buscadas) {
+        int puntos = 0;
+        for (String palabra : buscadas) {
+            int p = puntuar(documento, palabra);
+            if (p == 0) {
+                return 0;
+            }
+            puntos += p;
+        }
+        return puntos;
+    }
+
+    private static int puntuar(Documento documento, String palabra) {
+        int enNombre = buscarEn(documento.nombre(), palabra);
+        if (enNombre == 2) {
+            return NOMBRE_COMPLETA;
+        }
+        if (enNombre == 1) {
+            return NOMBRE_PREFIJO;
+        }
+        int enDescripcion = buscarEn(documento.descripcion(), palabra);
+        if (enDescripcion == 2) {
+            return DESCRIPCION_COMPLETA;
+        }
+        return enDescripcion == 1 ? DESCRIPCION_PREFIJO : 0;
+    }
+
+    /**
+     * 2 si la palabra está en la lista ordenada, 1 si alguna empieza
+     * por ella y 0 si no.
+     */
+    private static int buscarEn(String[] lista, String palabra) {
+        int i = Arrays.binarySearch(lista, palabra);
+        if (i >= 0) {
+            return 2;
+        }
+        int siguiente = -i - 1;
+        return siguiente < lista.length && lista[siguiente].startsWith(palabra) ? 1 : 0;
+    }
+
+    /**
+     * Productos de un rango de palabras, en orden y sin repetir. Con una
+     * sola palabra se usa su lista; con varias (un prefijo corto) se juntan
+     * en un mapa de bits, que cuesta lo mismo que leerlas.
+     *
+     * Se usa o para recorrerlos (siguiente) o para comprobar candidatos
+     * en orden creciente (contiene), no para las dos cosas.
+     */
+    private static final class Productos {
+
+        private final int[] unica;
+        private final int tamanioUnica;
+        private final long[] bits;
+        private int posicion;
+
+        Productos(Collection<Lista> rango, int numeros) {
+            if (rango.size() == 1) {
+                Lista lista = rango.iterator().next();
+                unica = lista.numeros;
+                tamanioUnica = lista.tamanio;
+                bits = null;
+            } else {
+                unica = null;
+                tamanioUnica = 0;
+                bits = new long[(numeros + 63) >>> 6];
+                for (Lista lista : rango) {
+                    for (int i = 0; i < lista.tamanio; i++) {
+                        int numero = lista.numeros[i];
+                        bits[numero >>> 6] |= 1L << numero;
+                    }
+                }
+            }
+        }
+
+        /** Siguiente número de producto, o -1 al terminar. */
+        int siguiente() {
+            if (bits == null) {
+                return posicion < tamanioUnica ? unica[posicion++] : -1;
+            }
+            int palabra = posicion >>> 6;
+            if (palabra >= bits.length) {
+                return -1;
+            }
+            long resto = bits[palabra] & (-1L << posicion);
+            while (resto == 0) {
+                if (++palabra == bits.length) {
+                    posicion = palabra << 6;
+                    return -1;
+                }
+                resto = bits[palabra];
+            }
+            int numero = (palabra << 6) + Long.numberOfTrailingZeros(resto);
+            posicion = numero + 1;
+            return numero;
+        }
+
+        /**
+         * Si el producto está. Los números tienen que llegar en orden
+         * creciente: la búsqueda en la lista sigue desde el anterior.
+         */
+        boolean contiene(int numero) {
+            if (bits != null) {
+                return (bits[numero >>> 6] & (1L << numero)) != 0;
+            }
+            int i = Arrays.binarySearch(unica, posicion, tamanioUnica, numero);
+            posicion = i >= 0 ? i + 1 : -i - 1;
+            return i >= 0;
+        }
+    }
+
+    /**
+     * Números ordenados de los productos de una palabra. Crecen por el
+     * final en las altas, que reciben siempre el número más alto.
+     * enNombre cuenta los productos que la tienen en el nombre.
+     */
+    private static final class Lista {
+
+        final String palabra;
+        int[] numeros = new int[1];
+        int tamanio;
+        int enNombre;
+
+        Lista(String palabra) {
+            this.palabra = palabra;
+        }
+
+        void agregar(int numero, boolean nombre) {
+            int i = tamanio > 0 && numeros[tamanio - 1] < numero
+                    ? -tamanio - 1 : Arrays.binarySearch(numeros, 0, tamanio, numero);
+            if (i >= 0) {
+                return;
+            }
+            if (nombre) {
+                enNombre++;
+            }
+            i = -i - 1;
+            if (tamanio == numeros.length) {
+                numeros = Arrays.copyOf(numeros, tamanio * 2);
+            }
+            System.arraycopy(numeros, i, numeros, i + 1, tamanio - i);
+            numeros[i] = numero;
+            tamanio++;
+        }
+
+        boolean quitar(int numero, boolean nombre) {
+            int i = Arrays.binarySearch(numeros, 0, tamanio, numero);
+            if (i < 0) {
+                return false;
+            }
+            if (nombre) {
+                enNombre--;
+            }
+            System.arraycopy(numeros, i + 1, numeros, i, tamanio - i - 1);
+            tamanio--;
+            return true;
+        }
+    }
+}
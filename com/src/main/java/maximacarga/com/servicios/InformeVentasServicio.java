@@ -0,0 +1,347 @@
+package maximacarga.com.servicios;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.annotation.Timed;
+import maximacarga.com.dto.ProductoVendido;
+import maximacarga.com.dto.VentasDia;
+import maximacarga.com.entidades.Pedido;
+import maximacarga.com.entidades.Pedido.EstadoPedido;
+import maximacarga.com.entidades.PedidoLinea;
+import maximacarga.com.entidades.VentaDiaria;
+import maximacarga.com.repositorios.VentaDiariaRepositorio;
+import maximacarga.com.repositorios.VentasAgregadasRepositorio.SumaProducto;
+import maximacarga.com.repositorios.VentasAgregadasRepositorio.SumaVentas;
+
+/**
+ * Servicio de informes de ventas para el panel de administración.
+ *
+ * Mantiene por día los pedidos e importe de cada estado y las unidades
+ * vendidas de cada producto, así que los informes leen como mucho una fila
+ * por día (y producto) en lugar de recorrer pedidos.
+ *
+ * PedidoServicio llama a los métodos de actualización dentro de su
+ * transacción, pero estos no escriben nada: cuando la transacción se
+ * confirma, las cantidades se acumulan en memoria y una tarea las vuelca
+ * cada segundo en una transacción corta. Así todos los pedidos del día no
+ * hacen cola en la misma fila (día, EN_PREPARACION) mientras dura su
+ * transacción. Los informes vuelcan lo pendiente antes de leer; si la
+ * aplicación se para sin volcar, recalcular() corrige los agregados.
+ */
+@Service
+@Timed("maximacarga.servicio")
+public class InformeVentasServicio {
+
+    private static final Logger log = LoggerFactory.getLogger(InformeVentasServicio.class);
+
+    /** Periodo máximo de un informe (unos 10 años). */
+    public static final long DIAS_MAXIMOS = 3660;
+
+    /** Número de productos más vendidos si no se indica otro. */
+    public static final int LIMITE_POR_DEFECTO = 10;
+
+    /** Número máximo de productos más vendidos que se permite pedir. */
+    public static final int LIMITE_MAXIMO = 100;
+
+    private final VentaDiariaRepositorio ventasRepo;
+    private final TransactionTemplate transaccion;
+
+    // Los pedidos confirmados suman con el cerrojo de lectura (muchos a la
+    // vez); el volcado cambia los acumulados con el de escritura
+    private final ReadWriteLock cambioPendientes = new ReentrantReadWriteLock();
+    private final Lock volcado = new ReentrantLock();
+    private volatile Pendientes pendientes = new Pendientes();
+
+    public InformeVentasServicio(VentaDiariaRepositorio ventasRepo,
+                                 PlatformTransactionManager transactionManager) {
+        this.ventasRepo = ventasRepo;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.transaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Suma un pedido nuevo a los agregados de su día.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void sumarPedido(Pedido pedido) {
+        Pendientes cambios = new Pendientes();
+        cambios.sumar(pedido, 1);
+        sumarTrasCommit(cambios);
+    }
+
+    /**
+     * Pasa un pedido de un estado a otro en los agregados de su día.
+     * Las unidades por producto solo cambian al cancelarlo
+     * (o si se reactivara uno cancelado).
+     *
+     * @param pedido Pedido con el estado nuevo ya asignado.
+     * @param anterior Estado que tenía antes.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void cambiarEstado(Pedido pedido, EstadoPedido anterior) {
+        EstadoPedido nuevo = pedido.getEstado();
+        if (nuevo == anterior) {
+            return;
+        }
+        LocalDate dia = pedido.getFecha().toLocalDate();
+        Pendientes cambios = new Pendientes();
+        cambios.sumarVentas(dia, anterior, -1, pedido.getTotal().negate());
+        cambios.sumarVentas(dia, nuevo, 1, pedido.getTotal());
+
+        boolean contabaUnidades = anterior != EstadoPedido.CANCELADO;
+        boolean cuentaUnidades = nuevo != EstadoPedido.CANCELADO;
+        if (contabaUnidades != cuentaUnidades) {
+            cambios.sumarProductos(dia, pedido.getLineas(), cuentaUnidades ? 1 : -1);
+        }
+        sumarTrasCommit(cambios);
+    }
+
+    /**
+     * Quita un pedido de los agregados (antes de borrarlo o de cambiar
+     * su fecha o total; tras el cambio se vuelve a sumar con sumarPedido).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void quitarPedido(Pedido pedido) {
+        Pendientes cambios = new Pendientes();
+        cambios.sumar(pedido, -1);
+        sumarTrasCommit(cambios);
+    }
+
+    /**
+     * Escribe en las tablas de agregados lo acumulado por los pedidos
+     * confirmados desde el último volcado, en una sola transacción.
+     * Si falla, lo devuelve a los pendientes para el siguiente intento.
+     */
+    @Scheduled(fixedDelayString = "${maximacarga.informes.volcado-ms:1000}")
+    public void volcar() {
+        volcado.lock();
+        try {
+            Pendientes lote = tomarPendientes();
+            if (lote.estaVacio()) {
+                return;
+            }
+            try {
+                transaccion.executeWithoutResult(estado -> lote.escribir(ventasRepo));
+            } catch (RuntimeException e) {
+                log.warn("No se pudieron volcar las ventas pendientes; se reintentará", e);
+                acumular(lote);
+            }
+        } finally {
+            volcado.unlock();
+        }
+    }
+
+    // Las cantidades se calculan ya (con el pedido cargado en la transacción)
+    // y solo se acumulan si esta se confirma
+    private void sumarTrasCommit(Pendientes cambios) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                acumular(cambios);
+            }
+        });
+    }
+
+    private void acumular(Pendientes cambios) {
+        cambioPendientes.readLock().lock();
+        try {
+            pendientes.sumar(cambios);
+        } finally {
+            cambioPendientes.readLock().unlock();
+        }
+    }
+
+    private Pendientes tomarPendientes() {
+        cambioPendientes.writeLock().lock();
+        try {
+            Pendientes lote = pendientes;
+            pendientes = new Pendientes();
+            return lote;
+        } finally {
+            cambioPendientes.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Serie diaria de ventas entre dos días (incluidos).
+     * Los días sin pedidos aparecen con todo a 0.
+     *
+     * @throws IllegalArgumentException si el periodo no es válido.
+     */
+    public List<VentasDia> ventasPorDia(LocalDate desde, LocalDate hasta) {
+        validarPeriodo(desde, hasta);
+        volcar();
+
+        List<VentaDiaria> filas = ventasRepo.findAllByFechaBetweenOrderByFecha(desde, hasta);
+        List<VentasDia> serie = new ArrayList<>();
+        int i = 0;
+        for (LocalDate dia = desde; !dia.isAfter(hasta); dia = dia.plusDays(1)) {
+            Map<EstadoPedido, Long> porEstado = new EnumMap<>(EstadoPedido.class);
+            for (EstadoPedido estado : EstadoPedido.values()) {
+                porEstado.put(estado, 0L);
+            }
+            long pedidos = 0;
+            BigDecimal importe = BigDecimal.ZERO;
+
+            for (; i < filas.size() && filas.get(i).getFecha().equals(dia); i++) {
+                VentaDiaria fila = filas.get(i);
+                porEstado.put(fila.getEstado(), fila.getPedidos());
+                pedidos += fila.getPedidos();
+                if (fila.getEstado() != EstadoPedido.CANCELADO) {
+                    importe = importe.add(fila.getImporte());
+                }
+            }
+            serie.add(new VentasDia(dia, pedidos, importe, porEstado));
+        }
+        return serie;
+    }
+
+    /**
+     * Productos con más unidades vendidas entre dos días (incluidos).
+     *
+     * @param limite Número de productos (por defecto 10, máximo 100).
+     * @throws IllegalArgumentException si el periodo no es válido.
+     */
+    public List<ProductoVendido> productosMasVendidos(LocalDate desde, LocalDate hasta, Integer limite) {
+        validarPeriodo(desde, hasta);
+        volcar();
+        int n = limite == null ? LIMITE_POR_DEFECTO : Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+        return ventasRepo.productosMasVendidos(desde, hasta, n);
+    }
+
+    /**
+     * Recalcula los agregados de un periodo desde los pedidos.
+     * Lo pendiente de volcar de esos días se descarta, porque los pedidos
+     * ya están confirmados y entran en el recálculo. Conviene lanzarlo con
+     * poca actividad: los pedidos que cambien en el periodo mientras se
+     * recalcula pueden quedar fuera o contarse dos veces.
+     *
+     * @throws IllegalArgumentException si el periodo no es válido.
+     */
+    public void recalcular(LocalDate desde, LocalDate hasta) {
+        validarPeriodo(desde, hasta);
+        volcado.lock();
+        try {
+            Pendientes lote = tomarPendientes();
+            lote.descartar(desde, hasta);
+            acumular(lote);
+            transaccion.executeWithoutResult(estado -> ventasRepo.recalcular(desde, hasta));
+        } finally {
+            volcado.unlock();
+        }
+    }
+
+    private static void validarPeriodo(LocalDate desde, LocalDate hasta) {
+        if (desde == null || hasta == null || hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("Periodo no válido");
+        }
+        if (ChronoUnit.DAYS.between(desde, hasta) >= DIAS_MAXIMOS) {
+            throw new IllegalArgumentException("El periodo no puede superar " + DIAS_MAXIMOS + " días");
+        }
+    }
+
+    private record ClaveVentas(LocalDate fecha, EstadoPedido estado) {
+    }
+
+    private record ClaveProducto(LocalDate fecha, Long productoId) {
+    }
+
+    private record Suma(long cantidad, BigDecimal importe) {
+
+        Suma mas(Suma otra) {
+            return new Suma(cantidad + otra.cantidad, importe.add(otra.importe));
+        }
+
+        boolean esCero() {
+            return cantidad == 0 && importe.signum() == 0;
+        }
+    }
+
+    /**
+     * Cantidades por sumar a los agregados. Los mapas son concurrentes
+     * porque varios pedidos confirmados suman a la vez.
+     */
+    private static final class Pendientes {
+
+        private final Map<ClaveVentas, Suma> ventas = new ConcurrentHashMap<>();
+        private final Map<ClaveProducto, Suma> productos = new ConcurrentHashMap<>();
+
+        void sumar(Pedido pedido, int signo) {
+            LocalDate dia = pedido.getFecha().toLocalDate();
+            sumarVentas(dia, pedido.getEstado(), signo, pedido.getTotal().multiply(BigDecimal.valueOf(signo)));
+            if (pedido.getEstado() != EstadoPedido.CANCELADO) {
+                sumarProductos(dia, pedido.getLineas(), signo);
+            }
+        }
+
+        void sumarVentas(LocalDate dia, EstadoPedido estado, long pedidos, BigDecimal importe) {
+            ventas.merge(new ClaveVentas(dia, estado), new Suma(pedidos, importe), Suma::mas);
+        }
+
+        void sumarProductos(LocalDate dia, List<PedidoLinea> lineas, int signo) {
+            BigDecimal factor = BigDecimal.valueOf(signo);
+            for (PedidoLinea linea : lineas) {
+                productos.merge(new ClaveProducto(dia, linea.getProductoId()),
+                        new Suma((long) signo * linea.getCantidad(), linea.getSubtotal().multiply(factor)),
+                        Suma::mas);
+            }
+        }
+
+        void sumar(Pendientes otros) {
+            otros.ventas.forEach((clave, suma) -> ventas.merge(clave, suma, Suma::mas));
+            otros.productos.forEach((clave, suma) -> productos.merge(clave, suma, Suma::mas));
+        }
+
+        void descartar(LocalDate desde, LocalDate hasta) {
+            ventas.keySet().removeIf(c -> !c.fecha().isBefore(desde) && !c.fecha().isAfter(hasta));
+            productos.keySet().removeIf(c -> !c.fecha().isBefore(desde) && !c.fecha().isAfter(hasta));
+        }
+
+        boolean estaVacio() {
+            return ventas.isEmpty() && productos.isEmpty();
+        }
+
+        // Siempre en el mismo orden (día y estado, día y producto), para que
+        // dos volcados a la vez (de varias instancias) no se bloqueen mutuamente
+        void escribir(VentaDiariaRepositorio repo) {
+            repo.sumarVentas(ventas.entrySet().stream()
+                    .filter(e -> !e.getValue().esCero())
+                    .sorted(Map.Entry.comparingByKey(Comparator.comparing(ClaveVentas::fecha)
+                            .thenComparing(ClaveVentas::estado)))
+                    .map(e -> new SumaVentas(e.getKey().fecha(), e.getKey().estado(),
+                            e.getValue().cantidad(), e.getValue().importe()))
+                    .toList());
+            repo.sumarVentasProductos(productos.entrySet().stream()
+                    .filter(e -> !e.getValue().esCero())
+                    .sorted(Map.Entry.comparingByKey(Comparator.comparing(ClaveProducto::fecha)
+                            .thenComparing(ClaveProducto::productoId)))
+                    .map(e -> new SumaProducto(e.getKey().fecha(), e.getKey().productoId(),
+                            e.getValue().cantidad(), e.getValue().importe()))
+                    .toList());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package maximacarga.com.servicios;
+
+/**
+ * Hace llegar al usuario su token de recuperación de contraseña.
+ *
+ * Es la única salida del token en claro: la respuesta de
+ * /usuarios/recuperar no lo incluye y en la base de datos solo
+ * se guarda su hash. NotificacionesConfig elige la implementación.
+ */
+public interface NotificadorRecuperacion {
+
+    /**
+     * Envía el token a su dueño.
+     *
+     * @param correoElectronico Correo del usuario.
+     * @param token Token en claro, válido una hora.
+     */
+    void enviarTokenRecuperacion(String correoElectronico, String token);
+}
@@ -0,0 +1,31 @@
+package maximacarga.com.servicios;
+
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+
+/**
+ * Envía el token de recuperación por correo (spring.mail.*).
+ */
+public class NotificadorRecuperacionCorreo implements NotificadorRecuperacion {
+
+    private final JavaMailSender correo;
+    private final String remitente;
+
+    public NotificadorRecuperacionCorreo(JavaMailSender correo, String remitente) {
+        this.correo = correo;
+        this.remitente = remitente;
+    }
+
+    @Override
+    public void enviarTokenRecuperacion(String correoElectronico, String token) {
+        SimpleMailMessage mensaje = new SimpleMailMessage();
+        mensaje.setFrom(remitente);
+        mensaje.setTo(correoElectronico);
+        mensaje.setSubject("Recuperación de contraseña");
+        mensaje.setText("Para elegir una contraseña nueva, usa este código de recuperación:\n\n"
+                + token + "\n\n"
+                + "Caduca en " + UsuarioServicio.VALIDEZ_TOKEN_RECUPERACION.toMinutes() + " minutos. "
+                + "Si no lo has pedido tú, puedes ignorar este mensaje.");
+        correo.send(mensaje);
+    }
+}
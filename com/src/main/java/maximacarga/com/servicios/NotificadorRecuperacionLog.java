@@ -0,0 +1,18 @@
+package maximacarga.com.servicios;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Escribe el token de recuperación en el log en lugar de enviarlo.
+ * Solo para desarrollo, cuando no hay servidor de correo configurado.
+ */
+public class NotificadorRecuperacionLog implements NotificadorRecuperacion {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificadorRecuperacionLog.class);
+
+    @Override
+    public void enviarTokenRecuperacion(String correoElectronico, String token) {
+        log.info("Token de recuperación para {}: {}", correoElectronico, token);
+    }
+}
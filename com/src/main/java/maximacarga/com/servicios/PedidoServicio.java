@@ -4,14 +4,27 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import io.micrometer.core.annotation.Timed;
+import maximacarga.com.dto.PaginaResultado;
+import maximacarga.com.dto.PedidoDTO;
 import maximacarga.com.entidades.Pedido;
 import maximacarga.com.entidades.Pedido.EstadoPedido;
 import maximacarga.com.entidades.PedidoLinea;
 import maximacarga.com.entidades.Producto;
 import maximacarga.com.entidades.Usuario;
+import maximacarga.com.repositorios.PedidoEspecificaciones;
 import maximacarga.com.repositorios.PedidoRepositorio;
 import maximacarga.com.repositorios.ProductoRepositorio;
 import maximacarga.com.repositorios.UsuarioRepositorio;
@@ -21,37 +34,93 @@ import maximacarga.com.repositorios.UsuarioRepositorio;
  * Se encarga de crear, listar, actualizar estado y eliminar pedidos.
  */
 @Service
+@Timed("maximacarga.servicio")
 public class PedidoServicio {
 
+    /** Tamaño de página de la búsqueda si no se indica otro. */
+    public static final int TAMANIO_PAGINA_POR_DEFECTO = 20;
+
+    /** Tamaño máximo de página que se permite pedir. */
+    public static final int TAMANIO_PAGINA_MAXIMO = 100;
+
+    /** Campos por los que se puede ordenar la búsqueda. */
+    public static final Set<String> CAMPOS_ORDEN = Set.of("fecha", "total", "estado", "id");
+
     private final PedidoRepositorio pedidoRepo;
     private final UsuarioRepositorio usuarioRepo;
     private final ProductoRepositorio productoRepo;
+    private final ProductoServicio productoServicio;
+    private final InformeVentasServicio informeVentas;
     
 
     public PedidoServicio(PedidoRepositorio pedidoRepo,
                           UsuarioRepositorio usuarioRepo,
-                          ProductoRepositorio productoRepo) {
+                          ProductoRepositorio productoRepo,
+                          ProductoServicio productoServicio,
+                          InformeVentasServicio informeVentas) {
         this.pedidoRepo = pedidoRepo;
         this.usuarioRepo = usuarioRepo;
         this.productoRepo = productoRepo;
+        this.productoServicio = productoServicio;
+        this.informeVentas = informeVentas;
     }
 
     /**
      * Crea un nuevo pedido a partir del carrito de un usuario.
-     * - Valida que el carrito no esté vacío.
+     * - Valida que el carrito no esté vacío y que las cantidades sean válidas.
+     * - Carga todos los productos del carrito en una sola consulta.
+     * - Descuenta el stock con un UPDATE condicional; si algún producto
+     *   no tiene stock suficiente, se deshace toda la transacción.
      * - Calcula subtotal y total.
      * - Genera líneas de pedido.
      * - Guarda el pedido en base de datos.
+     * - Lo suma a las ventas del día (InformeVentasServicio).
      */
+    @Transactional
     public void crearPedido(Long idUsuario, Map<String, Integer> carrito) {
 
         if (carrito == null || carrito.isEmpty()) {
             throw new IllegalArgumentException("El carrito está vacío");
         }
 
+        // Validar el carrito antes de ir a la base de datos.
+        // Ordenado por ID para bloquear las filas siempre en el mismo orden.
+        SortedMap<Long, Integer> cantidades = new TreeMap<>();
+        for (Map.Entry<String, Integer> entry : carrito.entrySet()) {
+            Long idProducto;
+            try {
+                idProducto = Long.valueOf(entry.getKey());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("ID de producto inválido: " + entry.getKey());
+            }
+
+            Integer cantidad = entry.getValue();
+            if (cantidad == null || cantidad <= 0) {
+                throw new IllegalArgumentException("Cantidad inválida para el producto " + idProducto);
+            }
+
+            cantidades.merge(idProducto, cantidad, Integer::sum);
+        }
+
         Usuario usuario = usuarioRepo.findById(idUsuario)
                 .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
 
+        // Una sola consulta para todos los productos del carrito
+        Map<Long, Producto> productos = productoRepo.findAllById(cantidades.keySet()).stream()
+                .collect(Collectors.toMap(Producto::getIdProducto, Function.identity()));
+
+        List<Long> noEncontrados = cantidades.keySet().stream()
+                .filter(id -> !productos.containsKey(id))
+                .toList();
+        if (!noEncontrados.isEmpty()) {
+            throw new RuntimeException("Producto no encontrado: " + noEncontrados);
+        }
+
+        if (!productoRepo.descontarStock(cantidades)) {
+            throw new IllegalStateException("Stock insuficiente para alguno de los productos del carrito");
+        }
+        productoServicio.invalidarProductos(cantidades.keySet());
+
         Pedido pedido = new Pedido();
         pedido.setUsuarioId(usuario.getIdUsuario());
         
@@ -61,17 +130,10 @@ public class PedidoServicio {
 
         BigDecimal subtotalPedido = BigDecimal.ZERO;
 
-        for (Map.Entry<String, Integer> entry : carrito.entrySet()) {
-            Long idProducto = Long.valueOf(entry.getKey());
+        for (Map.Entry<Long, Integer> entry : cantidades.entrySet()) {
+            Producto producto = productos.get(entry.getKey());
             Integer cantidad = entry.getValue();
 
-            if (cantidad == null || cantidad <= 0) {
-                throw new IllegalArgumentException("Cantidad inválida para el producto " + idProducto);
-            }
-
-            Producto producto = productoRepo.findById(idProducto)
-                    .orElseThrow(() -> new RuntimeException("Producto no encontrado: " + idProducto));
-
             BigDecimal precioUnit = BigDecimal.valueOf(producto.getPrecio());
             BigDecimal subtotalLinea = precioUnit.multiply(BigDecimal.valueOf(cantidad));
 
@@ -91,35 +153,73 @@ public class PedidoServicio {
         pedido.setTotal(subtotalPedido);
 
         pedidoRepo.save(pedido);
+        informeVentas.sumarPedido(pedido);
     }
 
     /**
      * Devuelve todos los pedidos del sistema.
-     * Fuerza la carga de las líneas para evitar problemas de Lazy Loading.
+     * Las líneas se cargan en la misma consulta (join fetch) y se
+     * devuelven como DTO, así que no hay carga perezosa por pedido.
      */
-    public List<Pedido> listarTodos() {
-
-        List<Pedido> pedidos = pedidoRepo.findAll();
-
-        // FORZAR CARGA DE LAS LÍNEAS
-        pedidos.forEach(p -> p.getLineas().size());
+    @Transactional(readOnly = true)
+    public List<PedidoDTO> listarTodos() {
+        return pedidoRepo.findAllConLineas().stream()
+                .map(PedidoDTO::de)
+                .toList();
+    }
 
-        return pedidos;
+    /**
+     * Devuelve todos los pedidos asociados a un usuario concreto,
+     * con sus líneas cargadas en la misma consulta.
+     */
+    @Transactional(readOnly = true)
+    public List<PedidoDTO> listarPorUsuario(Long idUsuario) {
+        return pedidoRepo.findAllConLineasByUsuarioId(idUsuario).stream()
+                .map(PedidoDTO::de)
+                .toList();
     }
-    
-    
 
     /**
-     * Devuelve todos los pedidos asociados a un usuario concreto.
+     * Busca pedidos con filtros opcionales, paginados y ordenados.
+     * Las líneas de la página se cargan en una sola consulta gracias
+     * al @BatchSize de Pedido.lineas.
+     *
+     * @param estado Estado del pedido (opcional).
+     * @param usuarioId ID del usuario (opcional).
+     * @param desde Fecha mínima incluida (opcional).
+     * @param hasta Fecha máxima excluida (opcional).
+     * @param pagina Número de página, empezando en 0.
+     * @param tamanio Tamaño de página (máximo 100).
+     * @param orden Campo de ordenación (uno de CAMPOS_ORDEN).
+     * @param ascendente true para orden ascendente.
+     * @return Página de pedidos.
      */
-    public List<Pedido> listarPorUsuario(Long idUsuario) {
+    @Transactional(readOnly = true)
+    public PaginaResultado<PedidoDTO> buscar(EstadoPedido estado, Long usuarioId,
+                                             LocalDateTime desde, LocalDateTime hasta,
+                                             int pagina, Integer tamanio,
+                                             String orden, boolean ascendente) {
+
+        if (!CAMPOS_ORDEN.contains(orden)) {
+            throw new IllegalArgumentException("Campo de ordenación no válido: " + orden);
+        }
+
+        int limite = tamanio == null ? TAMANIO_PAGINA_POR_DEFECTO
+                : Math.max(1, Math.min(tamanio, TAMANIO_PAGINA_MAXIMO));
 
-        List<Pedido> pedidos = pedidoRepo.findAllByUsuarioId(idUsuario);
+        // El ID desempata para que el orden entre páginas sea estable
+        Sort.Direction direccion = ascendente ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Sort sort = Sort.by(direccion, orden).and(Sort.by(direccion, "id"));
 
-        // 🔥 FORZAR CARGA DE LAS LÍNEAS
-        pedidos.forEach(p -> p.getLineas().size());
+        Specification<Pedido> filtro = Specification.allOf(
+                PedidoEspecificaciones.conEstado(estado),
+                PedidoEspecificaciones.deUsuario(usuarioId),
+                PedidoEspecificaciones.desde(desde),
+                PedidoEspecificaciones.hasta(hasta));
 
-        return pedidos;
+        return PaginaResultado.de(pedidoRepo
+                .findAll(filtro, PageRequest.of(Math.max(pagina, 0), limite, sort))
+                .map(PedidoDTO::de));
     }
 
     /**
@@ -134,10 +234,14 @@ public class PedidoServicio {
      * Cambia el estado de un pedido.
      * - No permite cambios si ya está ENTREGADO o CANCELADO.
      * - Si pasa a ENTREGADO, fija la fecha de entrega.
+     * - Lo mueve de estado en las ventas del día (InformeVentasServicio).
+     * El pedido se lee con bloqueo de fila, así que dos cambios a la vez
+     * sobre el mismo pedido se aplican uno detrás de otro.
      */
+    @Transactional
     public Pedido cambiarEstado(Long idPedido, EstadoPedido nuevoEstado) {
 
-        Pedido pedido = pedidoRepo.findById(idPedido)
+        Pedido pedido = pedidoRepo.findByIdParaActualizar(idPedido)
                 .orElseThrow(() -> new RuntimeException("Pedido no encontrado"));
 
         EstadoPedido estadoActual = pedido.getEstado();
@@ -153,23 +257,29 @@ public class PedidoServicio {
         }
 
         pedido.setEstado(nuevoEstado);
+        informeVentas.cambiarEstado(pedido, estadoActual);
         return pedidoRepo.save(pedido);
     }
     
     /**
      * Actualiza ciertos datos de un pedido existente.
      * Nota: En esta entidad se guarda usuarioId, no objeto Usuario completo.
+     * Como puede cambiar la fecha y el total, se quita de las ventas
+     * con los datos anteriores y se vuelve a sumar con los nuevos.
      */
+    @Transactional
     public Pedido actualizarPedido(Long id, Pedido datos) {
 
-        Pedido pedido = pedidoRepo.findById(id)
+        Pedido pedido = pedidoRepo.findByIdParaActualizar(id)
                 .orElseThrow(() -> new RuntimeException("Pedido no encontrado"));
+        informeVentas.quitarPedido(pedido);
 
         pedido.setFecha(datos.getFecha());
         pedido.setTotal(datos.getTotal());
         // ⚠ IMPORTANTE: en tu entidad NO existe setUsuario(...)
         // Tú guardas usuarioId, no Usuario completo
         pedido.setUsuarioId(datos.getUsuarioId());
+        informeVentas.sumarPedido(pedido);
 
         return pedidoRepo.save(pedido);
     }
@@ -179,13 +289,15 @@ public class PedidoServicio {
     /**
      * Elimina un pedido por su ID.
      * Lanza excepción si no existe.
+     * Se quita también de las ventas del día.
      */
+    @Transactional
     public void eliminarPedido(Long idPedido) {
 
-        if (!pedidoRepo.existsById(idPedido)) {
-            throw new RuntimeException("Pedido no encontrado");
-        }
+        Pedido pedido = pedidoRepo.findByIdParaActualizar(idPedido)
+                .orElseThrow(() -> new RuntimeException("Pedido no encontrado"));
 
-        pedidoRepo.deleteById(idPedido);
+        informeVentas.quitarPedido(pedido);
+        pedidoRepo.delete(pedido);
     }
 }
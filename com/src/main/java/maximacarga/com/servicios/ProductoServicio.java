@@ -1,28 +1,146 @@
 package maximacarga.com.servicios;
 
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import maximacarga.com.dto.MetadatosImagen;
+import maximacarga.com.dto.PaginaCatalogo;
+import maximacarga.com.dto.ProductoResumen;
 import maximacarga.com.entidades.Producto;
 import maximacarga.com.repositorios.ProductoRepositorio;
 
 /**
  * Servicio que gestiona la lógica de negocio relacionada con los productos.
  * Se encarga de crear, listar, obtener, actualizar y eliminar productos.
+ *
+ * Los productos por ID y las páginas del catálogo resumido se guardan
+ * en una caché en memoria acotada por tamaño y tiempo. Como los productos
+ * solo cambian desde este servicio, cada escritura invalida las entradas
+ * afectadas al confirmar la transacción. Sus aciertos, fallos y tamaño
+ * se publican como métricas cache.* (cache=productos y cache=productos.paginas).
+ *
+ * La búsqueda por texto usa IndiceBusquedaProductos, que se carga al
+ * arrancar y se actualiza con las mismas escrituras.
  */
 @Service
+@Timed("maximacarga.servicio")
 public class ProductoServicio {
 
+    /** Tamaño de página del catálogo si no se indica otro. */
+    public static final int TAMANIO_PAGINA_POR_DEFECTO = 20;
+
+    /** Tamaño máximo de página que se permite pedir. */
+    public static final int TAMANIO_PAGINA_MAXIMO = 100;
+
+    /** Longitud de la columna nombre. */
+    public static final int LONGITUD_NOMBRE = 255;
+
+    /** Longitud de la columna descripcion. */
+    public static final int LONGITUD_DESCRIPCION = 1000;
+
+    /** Resultados de búsqueda si no se indica otro límite. */
+    public static final int RESULTADOS_POR_DEFECTO = 20;
+
+    /** Resultados de búsqueda máximos que se permite pedir. */
+    public static final int RESULTADOS_MAXIMO = 100;
+
+    private static final Logger log = LoggerFactory.getLogger(ProductoServicio.class);
+
+    /** Productos leídos por consulta al cargar el índice de búsqueda. */
+    private static final int LOTE_CARGA_INDICE = 1000;
+
     private final ProductoRepositorio productoRepositorio;
+    private final ImagenProductoServicio imagenServicio;
+    private final IndiceBusquedaProductos indice;
+
+    private final Cache<Long, Producto> cacheProductos;
+    private final Cache<ClavePagina, PaginaCatalogo<ProductoResumen>> cachePaginas;
+
+    /**
+     * Clave de una página del catálogo resumido.
+     */
+    private record ClavePagina(long despuesDe, int tamanio) {}
 
-    public ProductoServicio(ProductoRepositorio productoRepositorio) {
+    public ProductoServicio(ProductoRepositorio productoRepositorio,
+                            ImagenProductoServicio imagenServicio,
+                            IndiceBusquedaProductos indice,
+                            MeterRegistry registro,
+                            @Value("${maximacarga.cache.productos.tamanio-maximo:10000}") long tamanioMaximo,
+                            @Value("${maximacarga.cache.productos.paginas-maximo:1000}") long paginasMaximo,
+                            @Value("${maximacarga.cache.productos.ttl-segundos:300}") long ttlSegundos) {
         this.productoRepositorio = productoRepositorio;
+        this.imagenServicio = imagenServicio;
+        this.indice = indice;
+
+        Duration ttl = Duration.ofSeconds(ttlSegundos);
+        this.cacheProductos = Caffeine.newBuilder()
+                .maximumSize(tamanioMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.cachePaginas = Caffeine.newBuilder()
+                .maximumSize(paginasMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registro, cacheProductos, "productos");
+        CaffeineCacheMetrics.monitor(registro, cachePaginas, "productos.paginas");
+    }
+
+    /**
+     * Comprueba los datos de un producto antes de crearlo o importarlo:
+     * nombre obligatorio, precio y stock no negativos, y textos que
+     * quepan en sus columnas.
+     *
+     * @param producto Producto a comprobar.
+     * @throws IllegalArgumentException con el motivo si no es válido.
+     */
+    public static void validar(Producto producto) {
+        if (producto.getNombre() == null || producto.getNombre().isBlank()) {
+            throw new IllegalArgumentException("El nombre es obligatorio");
+        }
+        if (producto.getNombre().length() > LONGITUD_NOMBRE) {
+            throw new IllegalArgumentException("El nombre es demasiado largo");
+        }
+        if (producto.getDescripcion() != null && producto.getDescripcion().length() > LONGITUD_DESCRIPCION) {
+            throw new IllegalArgumentException("La descripción es demasiado larga");
+        }
+        if (producto.getPrecio() == null || producto.getPrecio() < 0) {
+            throw new IllegalArgumentException("El precio no es válido");
+        }
+        if (producto.getStock() == null || producto.getStock() < 0) {
+            throw new IllegalArgumentException("El stock no es válido");
+        }
     }
 
     /**
      * Crea un nuevo producto en la base de datos.
+     * Si trae imagen, se guarda aparte en producto_imagenes.
      * Se ejecuta dentro de una transacción.
      *
      * @param producto Producto a guardar.
@@ -30,7 +148,18 @@ public class ProductoServicio {
      */
     @Transactional
     public Producto crearProducto(Producto producto) {
-        return productoRepositorio.save(producto);
+        byte[] imagen = producto.getImagenProducto();
+        producto.setTieneImagen(imagen != null);
+
+        Producto guardado = productoRepositorio.save(producto);
+
+        if (imagen != null) {
+            imagenServicio.guardarImagen(guardado.getIdProducto(), imagen);
+        }
+
+        invalidarCache(guardado.getIdProducto());
+        indice.indexarTrasCommit(guardado.getIdProducto(), guardado.getNombre(), guardado.getDescripcion());
+        return guardado;
     }
    
     /**
@@ -44,6 +173,61 @@ public class ProductoServicio {
         return productoRepositorio.findAll();
     }
 
+    /**
+     * Devuelve una página del catálogo con la proyección ligera
+     * (id, nombre, precio y stock).
+     * Se sirve desde la caché si la página ya se pidió antes.
+     * No abre transacción para no ocupar una conexión en los aciertos.
+     *
+     * @param despuesDe ID del último producto ya recibido (null para empezar).
+     * @param tamanio Tamaño de página pedido.
+     * @return Página de resúmenes.
+     */
+    public PaginaCatalogo<ProductoResumen> listarResumenPaginado(Long despuesDe, Integer tamanio) {
+        ClavePagina clave = new ClavePagina(cursor(despuesDe), limite(tamanio));
+        return cachePaginas.get(clave, c -> paginar(c.despuesDe(), c.tamanio(),
+                ProductoResumen.class, ProductoResumen::getIdProducto));
+    }
+
+    /**
+     * Devuelve una página del catálogo con los productos completos.
+     *
+     * @param despuesDe ID del último producto ya recibido (null para empezar).
+     * @param tamanio Tamaño de página pedido.
+     * @return Página de productos.
+     */
+    @Transactional(readOnly = true)
+    public PaginaCatalogo<Producto> listarPaginado(Long despuesDe, Integer tamanio) {
+        return paginar(cursor(despuesDe), limite(tamanio), Producto.class, Producto::getIdProducto);
+    }
+
+    private static long cursor(Long despuesDe) {
+        return despuesDe == null ? 0L : despuesDe;
+    }
+
+    private static int limite(Integer tamanio) {
+        return tamanio == null ? TAMANIO_PAGINA_POR_DEFECTO
+                : Math.max(1, Math.min(tamanio, TAMANIO_PAGINA_MAXIMO));
+    }
+
+    /**
+     * Pide una fila más de las necesarias para saber si hay
+     * página siguiente sin lanzar una consulta COUNT.
+     */
+    private <T> PaginaCatalogo<T> paginar(long cursor, int limite,
+                                          Class<T> tipo, Function<T, Long> id) {
+
+        List<T> filas = productoRepositorio.findByIdProductoGreaterThanOrderByIdProductoAsc(
+                cursor, Limit.of(limite + 1), tipo);
+
+        if (filas.size() <= limite) {
+            return new PaginaCatalogo<>(filas, null, limite);
+        }
+
+        List<T> pagina = List.copyOf(filas.subList(0, limite));
+        return new PaginaCatalogo<>(pagina, id.apply(pagina.get(limite - 1)), limite);
+    }
+
     /**
      * Elimina un producto por su ID.
      *
@@ -51,34 +235,102 @@ public class ProductoServicio {
      * @return true si se elimina correctamente,
      *         false si no existe.
      */
+    @Transactional
     public boolean eliminarProductoPorId(Long id) {
         if (!productoRepositorio.existsById(id)) {
             return false;
         }
+        imagenServicio.eliminarImagen(id);
         productoRepositorio.deleteById(id);
+        invalidarCache(id);
+        indice.quitarTrasCommit(id);
         return true;
     }
     
 
     /**
      * Obtiene un producto por su ID.
+     * Se sirve desde la caché si ya se leyó antes.
      *
      * @param id ID del producto.
      * @return Producto encontrado o null si no existe.
      */
     public Producto obtenerPorId(Long id) {
-        return productoRepositorio.findById(id).orElse(null);
+        return cacheProductos.get(id, clave -> productoRepositorio.findById(clave).orElse(null));
+    }
+
+    /**
+     * Obtiene los bytes de la imagen de un producto.
+     *
+     * @param id ID del producto.
+     * @return Imagen o null si el producto no tiene.
+     */
+    public byte[] obtenerImagen(Long id) {
+        return imagenServicio.obtenerImagen(id);
+    }
+
+    /**
+     * Fichero con el original de la imagen de un producto.
+     *
+     * @param id ID del producto.
+     * @return Ruta del fichero (puede no existir).
+     */
+    public Path ficheroImagen(Long id) {
+        return imagenServicio.ficheroImagen(id);
+    }
+
+    /**
+     * Fichero con la miniatura de la imagen de un producto.
+     *
+     * @param id ID del producto.
+     * @return Ruta del fichero (puede no existir).
+     */
+    public Path ficheroMiniatura(Long id) {
+        return imagenServicio.ficheroMiniatura(id);
+    }
+
+    /**
+     * Guarda la imagen de un producto recibida por multipart.
+     * No abre transacción mientras se copia el fichero; después
+     * marca el producto con una única sentencia UPDATE.
+     *
+     * @param id ID del producto.
+     * @param imagen Contenido de la imagen.
+     * @return true si se guarda, false si el producto no existe.
+     * @throws IllegalArgumentException si no es una imagen admitida.
+     */
+    public boolean guardarImagen(Long id, InputStream imagen) {
+        if (!productoRepositorio.existsById(id)) {
+            return false;
+        }
+        imagenServicio.guardarImagen(id, imagen);
+        productoRepositorio.marcarConImagen(id);
+        invalidarCache(id);
+        return true;
+    }
+
+    /**
+     * Obtiene el hash y la fecha de la imagen de un producto, sin los bytes.
+     *
+     * @param id ID del producto.
+     * @return Metadatos o null si el producto no tiene imagen.
+     */
+    public MetadatosImagen obtenerMetadatosImagen(Long id) {
+        return imagenServicio.obtenerMetadatos(id);
     }
     
     
     /**
      * Actualiza los datos de un producto existente.
+     * La imagen solo se reemplaza si viene en los datos, porque
+     * el catálogo ya no la devuelve y el cliente no puede reenviarla.
      * Lanza excepción si no se encuentra.
      *
      * @param id ID del producto.
      * @param datos Nuevos datos a actualizar.
      * @return Producto actualizado.
      */
+    @Transactional
     public Producto actualizarProducto(Long id, Producto datos) {
 
         Producto producto = productoRepositorio.findById(id)
@@ -88,9 +340,136 @@ public class ProductoServicio {
         producto.setDescripcion(datos.getDescripcion());
         producto.setPrecio(datos.getPrecio());
         producto.setStock(datos.getStock());
-        producto.setImagenProducto(datos.getImagenProducto());
 
-        return productoRepositorio.save(producto);
+        if (datos.getImagenProducto() != null) {
+            imagenServicio.guardarImagen(id, datos.getImagenProducto());
+            producto.setTieneImagen(true);
+        }
+
+        Producto guardado = productoRepositorio.save(producto);
+        invalidarCache(id);
+        indice.indexarTrasCommit(id, guardado.getNombre(), guardado.getDescripcion());
+        return guardado;
+    }
+
+    /**
+     * Busca productos por palabras de su nombre o descripción, sin
+     * distinguir mayúsculas ni acentos y admitiendo el principio de
+     * una palabra ("torn" encuentra "Tornillo").
+     * Solo la lectura de los resúmenes encontrados va a la base de datos.
+     *
+     * @param consulta Texto buscado.
+     * @param limite Número máximo de resultados (por defecto 20, máximo 100).
+     * @return Resúmenes de los productos, de más a menos relevante.
+     */
+    public List<ProductoResumen> buscar(String consulta, Integer limite) {
+        int maximo = limite == null ? RESULTADOS_POR_DEFECTO
+                : Math.max(1, Math.min(limite, RESULTADOS_MAXIMO));
+        List<Long> ids = indice.buscar(consulta, maximo);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Integer> posiciones = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            posiciones.put(ids.get(i), i);
+        }
+        // Un producto borrado entre el índice y la consulta simplemente no aparece
+        return productoRepositorio.findByIdProductoIn(ids, ProductoResumen.class).stream()
+                .sorted(Comparator.comparing(resumen -> posiciones.get(resumen.getIdProducto())))
+                .toList();
+    }
+
+    /**
+     * Carga el índice de búsqueda con todos los productos al arrancar,
+     * por páginas de la clave primaria. Mientras dura, la búsqueda solo
+     * encuentra los productos ya cargados. Las escrituras que lleguen
+     * mientras tanto ya actualizan el índice y no se pisan con la carga
+     * (un producto borrado después de leer su página no se vuelve a añadir).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarIndiceBusqueda() {
+        long inicio = System.nanoTime();
+        long cursor = 0;
+        List<Producto> pagina;
+        indice.empezarCarga();
+        try {
+            do {
+                pagina = productoRepositorio.findByIdProductoGreaterThanOrderByIdProductoAsc(
+                        cursor, Limit.of(LOTE_CARGA_INDICE), Producto.class);
+                for (Producto producto : pagina) {
+                    indice.indexarSiFalta(producto.getIdProducto(), producto.getNombre(), producto.getDescripcion());
+                    cursor = producto.getIdProducto();
+                }
+            } while (pagina.size() == LOTE_CARGA_INDICE);
+        } finally {
+            indice.terminarCarga();
+        }
+
+        log.info("Índice de búsqueda cargado: {} productos en {} ms",
+                indice.tamanio(), Duration.ofNanos(System.nanoTime() - inicio).toMillis());
+    }
+
+    /**
+     * Quita de la caché los productos indicados tras cambiar su stock
+     * fuera de este servicio (por ejemplo, al crear un pedido).
+     * Las páginas del catálogo no se invalidan: su stock es orientativo
+     * y caduca con el TTL; la reserva del pedido es la que manda.
+     *
+     * @param ids IDs de los productos modificados.
+     */
+    public void invalidarProductos(Collection<Long> ids) {
+        cacheProductos.invalidateAll(ids);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cacheProductos.invalidateAll(ids);
+                }
+            });
+        }
+    }
+
+    /**
+     * Vacía las dos cachés tras cambiar muchos productos a la vez
+     * (importación masiva). También al confirmar la transacción si la hay.
+     */
+    public void invalidarCatalogo() {
+        cacheProductos.invalidateAll();
+        cachePaginas.invalidateAll();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cacheProductos.invalidateAll();
+                    cachePaginas.invalidateAll();
+                }
+            });
+        }
+    }
+
+    /**
+     * Quita de la caché el producto indicado y todas las páginas del catálogo.
+     * Dentro de una transacción se hace también al confirmarla, para que
+     * una lectura concurrente no vuelva a guardar los datos anteriores.
+     *
+     * @param id ID del producto modificado.
+     */
+    private void invalidarCache(Long id) {
+        cacheProductos.invalidate(id);
+        cachePaginas.invalidateAll();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cacheProductos.invalidate(id);
+                    cachePaginas.invalidateAll();
+                }
+            });
+        }
     }
     
 }
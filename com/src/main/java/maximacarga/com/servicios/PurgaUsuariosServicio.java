@@ -0,0 +1,157 @@
+package maximacarga.com.servicios;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import maximacarga.com.repositorios.UsuarioRepositorio;
+
+/**
+ * Tarea programada que limpia la tabla de usuarios:
+ * - borra los tokens de recuperación caducados,
+ * - borra los tokens de activación caducados,
+ * - elimina las cuentas que nunca se activaron, pasado un margen desde
+ *   que caducó su token y solo si no tienen pedidos.
+ *
+ * Cada operación se hace por lotes de "lote" filas, cada uno en su propia
+ * transacción corta, así que nunca bloquea muchas filas a la vez aunque
+ * haya mucho acumulado. El número de lotes por ejecución está acotado;
+ * lo que quede se limpia en la siguiente.
+ *
+ * Métricas:
+ * - maximacarga.purga.filas{tipo=...}: filas procesadas por tipo.
+ * - maximacarga.purga.tiempo: duración de cada ejecución.
+ */
+@Service
+public class PurgaUsuariosServicio {
+
+    private static final Logger log = LoggerFactory.getLogger(PurgaUsuariosServicio.class);
+
+    /**
+     * Filas procesadas en una ejecución.
+     */
+    public record ResultadoPurga(long tokensRecuperacion, long tokensActivacion, long usuariosEliminados) {}
+
+    private final UsuarioRepositorio usuarioRepositorio;
+    private final FotoUsuarioServicio fotoServicio;
+    private final TransactionTemplate transaccion;
+    private final int lote;
+    private final int lotesMaximos;
+    private final Duration margenInactivos;
+
+    private final Counter tokensRecuperacion;
+    private final Counter tokensActivacion;
+    private final Counter usuariosEliminados;
+    private final Timer tiempo;
+
+    public PurgaUsuariosServicio(UsuarioRepositorio usuarioRepositorio,
+                                 FotoUsuarioServicio fotoServicio,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry registro,
+                                 @Value("${maximacarga.purga.lote:500}") int lote,
+                                 @Value("${maximacarga.purga.lotes-maximos:200}") int lotesMaximos,
+                                 @Value("${maximacarga.purga.dias-inactivos:30}") int diasInactivos) {
+        this.usuarioRepositorio = usuarioRepositorio;
+        this.fotoServicio = fotoServicio;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.lote = lote;
+        this.lotesMaximos = lotesMaximos;
+        this.margenInactivos = Duration.ofDays(diasInactivos);
+
+        this.tokensRecuperacion = contador(registro, "tokens_recuperacion");
+        this.tokensActivacion = contador(registro, "tokens_activacion");
+        this.usuariosEliminados = contador(registro, "usuarios_inactivos");
+        this.tiempo = Timer.builder("maximacarga.purga.tiempo")
+                .description("Duración de cada ejecución de la purga de usuarios")
+                .register(registro);
+    }
+
+    private static Counter contador(MeterRegistry registro, String tipo) {
+        return Counter.builder("maximacarga.purga.filas")
+                .description("Filas procesadas por la purga de usuarios")
+                .tag("tipo", tipo)
+                .register(registro);
+    }
+
+    /**
+     * Ejecución programada (por defecto cada noche a las 3:30).
+     */
+    @Scheduled(cron = "${maximacarga.purga.cron:0 30 3 * * *}")
+    public void purgarProgramado() {
+        ResultadoPurga resultado = tiempo.record(this::purgar);
+        log.info("Purga de usuarios: {} tokens de recuperación, {} tokens de activación, {} cuentas eliminadas",
+                resultado.tokensRecuperacion(), resultado.tokensActivacion(), resultado.usuariosEliminados());
+    }
+
+    /**
+     * Ejecuta las tres limpiezas por lotes.
+     *
+     * @return Filas procesadas de cada tipo.
+     */
+    public ResultadoPurga purgar() {
+        LocalDateTime recuperacionAntesDe = LocalDateTime.now().minus(UsuarioServicio.VALIDEZ_TOKEN_RECUPERACION);
+        Instant ahora = Instant.now();
+        Instant inactivosAntesDe = ahora.minus(margenInactivos);
+
+        long recuperacion = porLotes(
+                () -> usuarioRepositorio.idsConTokenRecuperacionCaducado(recuperacionAntesDe, lote),
+                ids -> usuarioRepositorio.borrarTokensRecuperacion(ids, recuperacionAntesDe),
+                tokensRecuperacion);
+
+        long activacion = porLotes(
+                () -> usuarioRepositorio.idsConTokenActivacionCaducado(ahora, lote),
+                ids -> usuarioRepositorio.borrarTokensActivacion(ids, ahora),
+                tokensActivacion);
+
+        long eliminados = porLotes(
+                () -> usuarioRepositorio.idsInactivosSinPedidos(inactivosAntesDe, lote),
+                ids -> {
+                    int filas = usuarioRepositorio.eliminarInactivos(ids, inactivosAntesDe);
+                    fotoServicio.eliminarFicheros(ids);
+                    return filas;
+                },
+                usuariosEliminados);
+
+        return new ResultadoPurga(recuperacion, activacion, eliminados);
+    }
+
+    /**
+     * Repite seleccionar + aplicar hasta que un lote sale incompleto
+     * o se llega al máximo de lotes de esta ejecución.
+     */
+    private long porLotes(Supplier<List<Long>> seleccionar,
+                          Function<List<Long>, Integer> aplicar,
+                          Counter contador) {
+        long total = 0;
+        for (int i = 0; i < lotesMaximos; i++) {
+            List<Long> ids = seleccionar.get();
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            Integer filas = transaccion.execute(estado -> aplicar.apply(ids));
+            int procesadas = filas == null ? 0 : filas;
+            contador.increment(procesadas);
+            total += procesadas;
+
+            if (ids.size() < lote) {
+                break;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,80 @@
+package maximacarga.com.servicios;
+
+import java.util.Date;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import jakarta.servlet.http.HttpServletRequest;
+import maximacarga.com.entidades.Usuario;
+
+/**
+ * Servicio que genera y verifica los tokens JWT.
+ *
+ * El Algorithm y el JWTVerifier se crean una sola vez y se reutilizan
+ * (son seguros entre hilos), en lugar de construirlos en cada login.
+ * Verificar un token no consulta la base de datos.
+ */
+@Service
+public class TokenServicio {
+
+    /** Atributo de la petición donde el filtro deja el token ya verificado. */
+    public static final String ATRIBUTO_TOKEN = "maximacarga.token";
+
+    /** Tipo de usuario del panel de administración. */
+    public static final String TIPO_ADMINISTRADOR = "ADMIN";
+
+    private final Algorithm algoritmo;
+    private final JWTVerifier verificador;
+    private final long expiracionMs;
+
+    public TokenServicio(@Value("${maximacarga.jwt.secreto:altair_006!}") String secreto,
+                         @Value("${maximacarga.jwt.expiracion-ms:3600000}") long expiracionMs) {
+        this.algoritmo = Algorithm.HMAC256(secreto);
+        this.verificador = JWT.require(algoritmo).build();
+        this.expiracionMs = expiracionMs;
+    }
+
+    /**
+     * Genera un token JWT para autenticación.
+     * Incluye email como subject, el ID y el tipo de usuario,
+     * y la fecha de expiración.
+     */
+    public String generarToken(Usuario usuario) {
+        long now = System.currentTimeMillis();
+
+        return JWT.create()
+                .withSubject(usuario.getCorreoElectronico())
+                .withClaim("id", usuario.getIdUsuario())
+                .withClaim("tipo", usuario.getTipoUsuario())
+                .withIssuedAt(new Date(now))
+                .withExpiresAt(new Date(now + expiracionMs))
+                .sign(algoritmo);
+    }
+
+    /**
+     * Verifica la firma y la expiración de un token.
+     *
+     * @param token Token JWT sin el prefijo "Bearer ".
+     * @return Token decodificado.
+     * @throws JWTVerificationException si no es válido o ha expirado.
+     */
+    public DecodedJWT verificar(String token) {
+        return verificador.verify(token);
+    }
+
+    /**
+     * Indica si la petición trae un token verificado de administrador
+     * (claim "tipo"), según lo dejó FiltroJwt en ATRIBUTO_TOKEN.
+     */
+    public static boolean esAdministrador(HttpServletRequest request) {
+        return request.getAttribute(ATRIBUTO_TOKEN) instanceof DecodedJWT token
+                && TIPO_ADMINISTRADOR.equals(token.getClaim("tipo").asString());
+    }
+}
@@ -1,14 +1,25 @@
 package maximacarga.com.servicios;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import io.micrometer.core.annotation.Timed;
+import maximacarga.com.dto.MetadatosImagen;
+import maximacarga.com.dto.UsuarioResumen;
 import maximacarga.com.entidades.Usuario;
 import maximacarga.com.repositorios.UsuarioRepositorio;
 
@@ -17,12 +28,24 @@ import maximacarga.com.repositorios.UsuarioRepositorio;
  * Incluye registro, actualización, eliminación y recuperación de contraseña.
  */
 @Service
+@Timed("maximacarga.servicio")
 public class UsuarioServicio {
 
+    private static final Logger log = LoggerFactory.getLogger(UsuarioServicio.class);
+
+    /** Tiempo durante el que vale un token de recuperación. */
+    public static final Duration VALIDEZ_TOKEN_RECUPERACION = Duration.ofHours(1);
+
     private final UsuarioRepositorio usuarioRepositorio;
+    private final FotoUsuarioServicio fotoServicio;
+    private final NotificadorRecuperacion notificadorRecuperacion;
 
-    public UsuarioServicio(UsuarioRepositorio usuarioRepositorio) {
+    public UsuarioServicio(UsuarioRepositorio usuarioRepositorio,
+                           FotoUsuarioServicio fotoServicio,
+                           NotificadorRecuperacion notificadorRecuperacion) {
         this.usuarioRepositorio = usuarioRepositorio;
+        this.fotoServicio = fotoServicio;
+        this.notificadorRecuperacion = notificadorRecuperacion;
     }
 
     /**
@@ -51,6 +74,77 @@ public class UsuarioServicio {
         return usuarioRepositorio.findById(id).orElse(null);
     }
 
+    /**
+     * Busca el resumen (perfil) de un usuario por su ID.
+     * Devuelve null si no existe.
+     */
+    @Transactional(readOnly = true)
+    public UsuarioResumen buscarResumenPorId(Long id) {
+        return usuarioRepositorio.findResumenByIdUsuario(id).orElse(null);
+    }
+
+    /**
+     * Busca el resumen (perfil) de un usuario por su correo electrónico.
+     */
+    @Transactional(readOnly = true)
+    public Optional<UsuarioResumen> buscarResumenPorCorreoElectronico(String email) {
+        return usuarioRepositorio.findResumenByCorreoElectronico(email);
+    }
+
+    /**
+     * Obtiene los bytes de la foto de un usuario.
+     * Devuelve null si no tiene.
+     */
+    public byte[] obtenerFoto(Long id) {
+        return fotoServicio.obtenerFoto(id);
+    }
+
+    /**
+     * Obtiene el hash y la fecha de la foto de un usuario, sin los bytes.
+     * Devuelve null si no tiene.
+     */
+    public MetadatosImagen obtenerMetadatosFoto(Long id) {
+        return fotoServicio.obtenerMetadatos(id);
+    }
+
+    /**
+     * Fichero con la foto de un usuario (puede no existir).
+     */
+    public Path ficheroFoto(Long id) {
+        return fotoServicio.ficheroFoto(id);
+    }
+
+    /**
+     * Fichero con la miniatura de la foto de un usuario (puede no existir).
+     */
+    public Path ficheroMiniaturaFoto(Long id) {
+        return fotoServicio.ficheroMiniatura(id);
+    }
+
+    /**
+     * Guarda la foto de un usuario y marca que la tiene.
+     * Devuelve false si el usuario no existe.
+     */
+    public boolean guardarFoto(Long id, byte[] foto) {
+        return guardarFoto(id, new ByteArrayInputStream(foto));
+    }
+
+    /**
+     * Guarda la foto de un usuario leyéndola por bloques y marca que la tiene.
+     * No abre transacción: la foto se escribe a disco y luego se
+     * actualizan las filas, cada una en su propia sentencia.
+     * Devuelve false si el usuario no existe.
+     */
+    public boolean guardarFoto(Long id, InputStream foto) {
+        if (!usuarioRepositorio.existsById(id)) {
+            return false;
+        }
+
+        fotoServicio.guardarFoto(id, foto);
+        usuarioRepositorio.marcarConFoto(id);
+        return true;
+    }
+
 
     /**
      * Elimina un usuario por su ID.
@@ -59,6 +153,7 @@ public class UsuarioServicio {
     @Transactional
     public boolean eliminarUsuarioPorId(Long id) {
         if (usuarioRepositorio.existsById(id)) {
+            fotoServicio.eliminarFoto(id);
             usuarioRepositorio.deleteById(id);
             return true;
         }
@@ -81,16 +176,22 @@ public class UsuarioServicio {
     }
     
     /**
-     * Devuelve la lista completa de usuarios registrados.
+     * Devuelve la lista completa de usuarios registrados,
+     * con la proyección ligera (sin foto ni credenciales).
      */
-    public List<Usuario> listarUsuarios() {
-        return usuarioRepositorio.findAll();
+    @Transactional(readOnly = true)
+    public List<UsuarioResumen> listarUsuarios() {
+        return usuarioRepositorio.findAllProjectedBy();
     }
     
     
     /**
-     * Genera un token de recuperación de contraseña.
-     * El token se guarda junto con la fecha de generación.
+     * Genera un token de recuperación de contraseña y se lo envía al
+     * usuario (NotificadorRecuperacion) cuando la transacción se confirma.
+     * En la base de datos solo se guarda su SHA-256 junto con la fecha
+     * de generación. Un token nuevo sustituye al anterior.
+     *
+     * @return false si no existe el correo.
      */
     @Transactional
     public boolean generarTokenRecuperacion(String correoElectronico) {
@@ -106,28 +207,25 @@ public class UsuarioServicio {
 
         String token = UUID.randomUUID().toString();
 
-        usuario.setTokenRecuperacion(token);
+        usuario.setTokenRecuperacion(Hashes.sha256(token));
         usuario.setFechaTokenRecuperacion(LocalDateTime.now());
 
         usuarioRepositorio.save(usuario);
 
-        return true;
-    }
+        // Solo se envía si el hash ha quedado guardado
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    notificadorRecuperacion.enviarTokenRecuperacion(correoElectronico, token);
+                } catch (RuntimeException e) {
+                    // El usuario puede volver a pedirlo
+                    log.warn("No se pudo enviar el token de recuperación a {}", correoElectronico, e);
+                }
+            }
+        });
 
-    /**
-     * Obtiene el token de recuperación asociado a un correo.
-     */
-    @Transactional(readOnly = true)
-    public String obtenerTokenRecuperacion(String correoElectronico) {
-
-        Optional<Usuario> optional = usuarioRepositorio
-                .findByCorreoElectronico(correoElectronico);
-
-        if (optional.isEmpty()) {
-            return null;
-        }
-
-        return optional.get().getTokenRecuperacion();
+        return true;
     }
 
     /**
@@ -139,8 +237,13 @@ public class UsuarioServicio {
                                           String nuevaContrasenia,
                                           PasswordEncoder encoder) {
 
+        if (tokenRecuperacion == null || tokenRecuperacion.isBlank()) {
+            return false;
+        }
+
+        // Se busca por el hash, que es lo que está indexado
         Optional<Usuario> optional =
-                usuarioRepositorio.findByTokenRecuperacion(tokenRecuperacion);
+                usuarioRepositorio.findByTokenRecuperacion(Hashes.sha256(tokenRecuperacion));
 
         if (optional.isEmpty()) {
             return false;
@@ -151,7 +254,7 @@ public class UsuarioServicio {
         //  Expira a la hora
         if (usuario.getFechaTokenRecuperacion() == null ||
             usuario.getFechaTokenRecuperacion()
-                   .isBefore(LocalDateTime.now().minusHours(1))) {
+                   .isBefore(LocalDateTime.now().minus(VALIDEZ_TOKEN_RECUPERACION))) {
             return false;
         }
 
@@ -0,0 +1,116 @@
+package maximacarga.com.servicios;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Servicio que comprueba contraseñas con BCrypt fuera de los hilos de Tomcat.
+ *
+ * BCrypt es costoso a propósito. Si cada login lo ejecutara en el hilo de
+ * la petición, una ráfaga de logins ocuparía todos los hilos del servidor y
+ * el resto de peticiones (catálogo, pedidos) quedarían esperando. Aquí se usa
+ * un pool propio con tantos hilos como procesadores y una cola acotada: si
+ * la cola está llena se rechaza la comprobación y el controlador responde 503.
+ *
+ * Métricas:
+ * - maximacarga.bcrypt.cola: comprobaciones esperando en la cola.
+ * - maximacarga.bcrypt.activos: comprobaciones en ejecución.
+ * - maximacarga.bcrypt.tiempo: duración de cada comprobación.
+ * - maximacarga.bcrypt.rechazos: comprobaciones rechazadas por saturación.
+ */
+@Service
+public class VerificacionContraseniaServicio {
+
+    private static final Logger log = LoggerFactory.getLogger(VerificacionContraseniaServicio.class);
+
+    private final PasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer tiempo;
+    private final Counter rechazos;
+
+    public VerificacionContraseniaServicio(PasswordEncoder encoder,
+                                           MeterRegistry registro,
+                                           @Value("${maximacarga.seguridad.bcrypt.hilos:0}") int hilos,
+                                           @Value("${maximacarga.seguridad.bcrypt.cola:64}") int capacidadCola) {
+        this.encoder = encoder;
+
+        int numHilos = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(numHilos, numHilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacidadCola),
+                r -> {
+                    Thread hilo = new Thread(r, "bcrypt-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.tiempo = Timer.builder("maximacarga.bcrypt.tiempo")
+                .description("Duración de cada comprobación BCrypt")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registro);
+        this.rechazos = Counter.builder("maximacarga.bcrypt.rechazos")
+                .description("Comprobaciones rechazadas por cola llena")
+                .register(registro);
+        Gauge.builder("maximacarga.bcrypt.cola", executor, e -> e.getQueue().size())
+                .description("Comprobaciones BCrypt esperando en la cola")
+                .register(registro);
+        Gauge.builder("maximacarga.bcrypt.activos", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Comprobaciones BCrypt en ejecución")
+                .register(registro);
+
+        log.info("Pool BCrypt: {} hilos, cola de {}", numHilos, capacidadCola);
+        calibrar();
+    }
+
+    /**
+     * Mide cuánto tarda un hash con el coste configurado en esta máquina.
+     * Sirve de referencia para ajustar maximacarga.seguridad.bcrypt.coste.
+     */
+    private void calibrar() {
+        long inicio = System.nanoTime();
+        encoder.encode("calibracion");
+        long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        log.info("BCrypt: {} ms por hash; capacidad aproximada {} logins/s por hilo",
+                ms, ms == 0 ? "más de 1000" : 1000 / ms);
+    }
+
+    /**
+     * Comprueba una contraseña en el pool de BCrypt.
+     *
+     * @param contrasenia Contraseña en claro.
+     * @param hash Hash guardado del usuario.
+     * @return Futuro con true si coinciden.
+     * @throws RejectedExecutionException si el pool está saturado.
+     */
+    public CompletableFuture<Boolean> comprobar(String contrasenia, String hash) {
+        try {
+            return CompletableFuture.supplyAsync(
+                    () -> tiempo.record(() -> encoder.matches(contrasenia, hash)), executor);
+        } catch (RejectedExecutionException e) {
+            rechazos.increment();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,58 @@
+-- Esquema tal y como lo dejaba ddl-auto=update antes de las migraciones.
+-- En la base de datos de produccion ya existe: Flyway la marca como
+-- version 1 (baseline-on-migrate) y empieza a aplicar desde la V2.
+-- Los nombres de las claves son los que generaba Hibernate, para que
+-- una base de datos nueva y una migrada acaben exactamente iguales.
+
+CREATE TABLE usuario (
+    idUsuario BIGINT NOT NULL AUTO_INCREMENT,
+    activo BIT(1) NOT NULL,
+    apellidosUsuario VARCHAR(100),
+    contrasena VARCHAR(255) NOT NULL,
+    correoElectronico VARCHAR(50) NOT NULL,
+    fchNacUsu DATE,
+    fecha_expiracion_token_activacion DATETIME(6),
+    fecha_token_recuperacion DATETIME(6),
+    foto LONGBLOB,
+    movil VARCHAR(20),
+    nombreUsuario VARCHAR(50),
+    tipoUsuario VARCHAR(20) NOT NULL,
+    token_activacion VARCHAR(128),
+    token_recuperacion VARCHAR(255),
+    PRIMARY KEY (idUsuario),
+    CONSTRAINT UKppun8gxh3cnksvhxtgkxluoh8 UNIQUE (correoElectronico),
+    CONSTRAINT UKdch18rjcj13mi0y5cwkkcg5m5 UNIQUE (token_activacion)
+) ENGINE=InnoDB;
+
+CREATE TABLE productos (
+    idProducto BIGINT NOT NULL AUTO_INCREMENT,
+    descripcion VARCHAR(1000),
+    imagenProducto LONGBLOB,
+    nombre VARCHAR(255),
+    precio DOUBLE,
+    stock INT,
+    PRIMARY KEY (idProducto)
+) ENGINE=InnoDB;
+
+CREATE TABLE pedidos (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    estado ENUM('CANCELADO','ENTREGADO','ENVIADO','EN_PREPARACION') NOT NULL,
+    fecha DATETIME(6) NOT NULL,
+    fecha_entrega DATETIME(6),
+    subtotal DECIMAL(38,2) NOT NULL,
+    total DECIMAL(38,2) NOT NULL,
+    usuario_id BIGINT NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE=InnoDB;
+
+CREATE TABLE pedido_lineas (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    cantidad INT NOT NULL,
+    nombre_producto VARCHAR(255) NOT NULL,
+    precio_unitario DECIMAL(38,2) NOT NULL,
+    producto_id BIGINT NOT NULL,
+    subtotal DECIMAL(38,2) NOT NULL,
+    pedido_id BIGINT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT FK5fl7ty1sc7ib2cwgbajqsnris FOREIGN KEY (pedido_id) REFERENCES pedidos (id)
+) ENGINE=InnoDB;
@@ -0,0 +1,90 @@
+-- Cambios de esquema hechos mientras se usaba ddl-auto=update.
+-- Puede que update ya aplicara parte en produccion, asi que todo
+-- lleva IF [NOT] EXISTS y se puede ejecutar sobre cualquier estado.
+-- Los indices se crean en linea (ALGORITHM=INPLACE, LOCK=NONE): la
+-- tabla sigue admitiendo lecturas y escrituras mientras se construyen.
+
+-- Imagenes y fotos en sus propias tablas
+ALTER TABLE productos ADD COLUMN IF NOT EXISTS tieneImagen BIT(1);
+ALTER TABLE usuario ADD COLUMN IF NOT EXISTS tieneFoto BIT(1);
+
+CREATE TABLE IF NOT EXISTS producto_imagenes (
+    idProducto BIGINT NOT NULL,
+    datos LONGBLOB,
+    hash VARCHAR(64),
+    tipoContenido VARCHAR(50),
+    tamanio BIGINT,
+    fechaModificacion DATETIME(6),
+    PRIMARY KEY (idProducto)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS usuario_fotos (
+    idUsuario BIGINT NOT NULL,
+    datos LONGBLOB,
+    hash VARCHAR(64),
+    tipoContenido VARCHAR(50),
+    tamanio BIGINT,
+    fechaModificacion DATETIME(6),
+    PRIMARY KEY (idUsuario)
+) ENGINE=InnoDB;
+
+-- Las tablas de imagenes creadas por update antes de los metadatos
+ALTER TABLE producto_imagenes
+    ADD COLUMN IF NOT EXISTS hash VARCHAR(64),
+    ADD COLUMN IF NOT EXISTS tipoContenido VARCHAR(50),
+    ADD COLUMN IF NOT EXISTS tamanio BIGINT,
+    ADD COLUMN IF NOT EXISTS fechaModificacion DATETIME(6),
+    MODIFY datos LONGBLOB NULL;
+ALTER TABLE usuario_fotos
+    ADD COLUMN IF NOT EXISTS hash VARCHAR(64),
+    ADD COLUMN IF NOT EXISTS tipoContenido VARCHAR(50),
+    ADD COLUMN IF NOT EXISTS tamanio BIGINT,
+    ADD COLUMN IF NOT EXISTS fechaModificacion DATETIME(6),
+    MODIFY datos LONGBLOB NULL;
+
+-- Los tokens de recuperacion se guardan como SHA-256 (64 caracteres).
+-- Los que quedan en claro ya no se pueden usar y se borran. La columna
+-- se queda en VARCHAR(255): reducirla con MODIFY copiaria la tabla entera
+-- bloqueando las escrituras, y ddl-auto=validate no comprueba la longitud.
+UPDATE usuario SET token_recuperacion = NULL, fecha_token_recuperacion = NULL
+    WHERE CHAR_LENGTH(token_recuperacion) <> 64;
+
+-- Indices de usuario (recuperacion de contrasena y purga nocturna)
+ALTER TABLE usuario
+    ADD INDEX IF NOT EXISTS idx_usuario_token_recuperacion (token_recuperacion),
+    ADD INDEX IF NOT EXISTS idx_usuario_fecha_token_recuperacion (fecha_token_recuperacion),
+    ADD INDEX IF NOT EXISTS idx_usuario_activo_expiracion (activo, fecha_expiracion_token_activacion),
+    ALGORITHM=INPLACE, LOCK=NONE;
+
+-- Pedidos de un usuario y busqueda por estado, ordenados por fecha.
+-- idx_pedidos_usuario_fecha tambien sirve para filtrar solo por usuario_id.
+ALTER TABLE pedidos
+    ADD INDEX IF NOT EXISTS idx_pedidos_usuario_fecha (usuario_id, fecha),
+    ADD INDEX IF NOT EXISTS idx_pedidos_estado_fecha (estado, fecha),
+    ALGORITHM=INPLACE, LOCK=NONE;
+
+-- Lineas de un pedido. Hasta ahora solo existia el indice que InnoDB
+-- crea para la clave ajena; se sustituye por uno con nombre propio.
+ALTER TABLE pedido_lineas
+    ADD INDEX IF NOT EXISTS idx_pedido_lineas_pedido (pedido_id),
+    ALGORITHM=INPLACE, LOCK=NONE;
+ALTER TABLE pedido_lineas
+    DROP INDEX IF EXISTS FK5fl7ty1sc7ib2cwgbajqsnris,
+    ALGORITHM=INPLACE, LOCK=NONE;
+
+-- Secuencias de pedidos y lineas (allocationSize = 50). Si ya hay
+-- pedidos se adelantan hasta el ID maximo para no repetir IDs.
+CREATE SEQUENCE IF NOT EXISTS pedidos_seq START WITH 1 INCREMENT BY 50 NOCACHE;
+CREATE SEQUENCE IF NOT EXISTS pedido_lineas_seq START WITH 1 INCREMENT BY 50 NOCACHE;
+
+SET @maximo = (SELECT COALESCE(MAX(id), 0) FROM pedidos);
+SET @sentencia = CONCAT('SELECT SETVAL(pedidos_seq, ', @maximo, ')');
+PREPARE ajuste FROM @sentencia;
+EXECUTE ajuste;
+DEALLOCATE PREPARE ajuste;
+
+SET @maximo = (SELECT COALESCE(MAX(id), 0) FROM pedido_lineas);
+SET @sentencia = CONCAT('SELECT SETVAL(pedido_lineas_seq, ', @maximo, ')');
+PREPARE ajuste FROM @sentencia;
+EXECUTE ajuste;
+DEALLOCATE PREPARE ajuste;
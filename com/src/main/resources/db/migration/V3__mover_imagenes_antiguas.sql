@@ -0,0 +1,32 @@
+-- Copia las imagenes y fotos que seguian en productos.imagenProducto y
+-- usuario.foto a sus tablas, y borra las columnas antiguas.
+-- Quedan sin tipoContenido: se sirven como JPEG desde la fila, igual
+-- que el resto de imagenes anteriores al almacen en disco.
+-- INSERT IGNORE: si el producto ya tiene imagen nueva, se conserva.
+-- Las bases de datos creadas por update despues de separar las imagenes
+-- ya no tienen las columnas; se anaden vacias para poder seguir igual.
+
+ALTER TABLE productos ADD COLUMN IF NOT EXISTS imagenProducto LONGBLOB;
+ALTER TABLE usuario ADD COLUMN IF NOT EXISTS foto LONGBLOB;
+
+INSERT IGNORE INTO producto_imagenes (idProducto, datos, hash, tamanio, fechaModificacion)
+    SELECT idProducto, imagenProducto, SHA2(imagenProducto, 256), LENGTH(imagenProducto), NOW(6)
+    FROM productos
+    WHERE imagenProducto IS NOT NULL;
+
+UPDATE productos p
+    JOIN producto_imagenes i ON i.idProducto = p.idProducto
+    SET p.tieneImagen = TRUE;
+
+ALTER TABLE productos DROP COLUMN IF EXISTS imagenProducto;
+
+INSERT IGNORE INTO usuario_fotos (idUsuario, datos, hash, tamanio, fechaModificacion)
+    SELECT idUsuario, foto, SHA2(foto, 256), LENGTH(foto), NOW(6)
+    FROM usuario
+    WHERE foto IS NOT NULL;
+
+UPDATE usuario u
+    JOIN usuario_fotos f ON f.idUsuario = u.idUsuario
+    SET u.tieneFoto = TRUE;
+
+ALTER TABLE usuario DROP COLUMN IF EXISTS foto;
@@ -0,0 +1,37 @@
+-- Agregados diarios de ventas para los informes del panel de administracion
+-- (InformeVentasServicio). Se mantienen en la misma transaccion que cada
+-- cambio de pedido, asi que los informes leen una fila por dia y no
+-- recorren los pedidos.
+
+CREATE TABLE IF NOT EXISTS ventas_diarias (
+    fecha DATE NOT NULL,
+    estado ENUM('CANCELADO','ENTREGADO','ENVIADO','EN_PREPARACION') NOT NULL,
+    pedidos BIGINT NOT NULL,
+    importe DECIMAL(38,2) NOT NULL,
+    PRIMARY KEY (fecha, estado)
+) ENGINE=InnoDB;
+
+-- Unidades vendidas por producto y dia; no incluye los pedidos cancelados
+CREATE TABLE IF NOT EXISTS ventas_producto_diarias (
+    fecha DATE NOT NULL,
+    producto_id BIGINT NOT NULL,
+    unidades BIGINT NOT NULL,
+    importe DECIMAL(38,2) NOT NULL,
+    PRIMARY KEY (fecha, producto_id)
+) ENGINE=InnoDB;
+
+-- Carga inicial con los pedidos que ya existen
+DELETE FROM ventas_diarias;
+DELETE FROM ventas_producto_diarias;
+
+INSERT INTO ventas_diarias (fecha, estado, pedidos, importe)
+SELECT CAST(fecha AS DATE), estado, COUNT(*), SUM(total)
+FROM pedidos
+GROUP BY CAST(fecha AS DATE), estado;
+
+INSERT INTO ventas_producto_diarias (fecha, producto_id, unidades, importe)
+SELECT CAST(p.fecha AS DATE), l.producto_id, SUM(l.cantidad), SUM(l.subtotal)
+FROM pedidos p
+JOIN pedido_lineas l ON l.pedido_id = p.id
+WHERE p.estado <> 'CANCELADO'
+GROUP BY CAST(p.fecha AS DATE), l.producto_id;
@@ -0,0 +1,90 @@
+package maximacarga.com.config;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import maximacarga.com.entidades.Usuario;
+import maximacarga.com.servicios.TokenServicio;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class FiltroJwtTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenServicio tokenServicio;
+
+    @Value("${maximacarga.jwt.secreto:altair_006!}")
+    private String secreto;
+
+    @Test
+    void elCatalogoEsPublico() throws Exception {
+        mockMvc.perform(get("/api/productos"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void rechazaPeticionesProtegidasSinToken() throws Exception {
+        mockMvc.perform(get("/api/pedidos"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void elTokenDeRecuperacionNoSePuedePedirSinAutenticarse() throws Exception {
+        mockMvc.perform(get("/api/usuarios/tokenRecuperacion").param("correoElectronico", "x@maximacarga.com"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void rechazaTokensNoValidos() throws Exception {
+        mockMvc.perform(get("/api/pedidos").header(HttpHeaders.AUTHORIZATION, "Bearer no-es-un-jwt"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void aceptaTokensFirmadosPorElServicio() throws Exception {
+        Usuario usuario = new Usuario("600000000", "filtro@maximacarga.com", "ADMIN", "x");
+        usuario.setIdUsuario(1L);
+
+        mockMvc.perform(get("/api/pedidos")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenServicio.generarToken(usuario)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void unTokenCaducadoNoImpideLasRutasPublicas() throws Exception {
+        Usuario usuario = new Usuario("600000000", "caducado@maximacarga.com", "CLIENTE", "x");
+        usuario.setIdUsuario(1L);
+        String caducado = "Bearer " + new TokenServicio(secreto, -60_000L).generarToken(usuario);
+
+        MvcResult login = mockMvc.perform(post("/api/usuarios/login")
+                        .header(HttpHeaders.AUTHORIZATION, caducado)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"correoElectronico\":\"nadie@maximacarga.com\",\"contrasena\":\"x\"}"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(login))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.error").value("Credenciales incorrectas"));
+
+        mockMvc.perform(get("/api/productos").header(HttpHeaders.AUTHORIZATION, caducado))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/pedidos").header(HttpHeaders.AUTHORIZATION, caducado))
+                .andExpect(status().isUnauthorized());
+    }
+}
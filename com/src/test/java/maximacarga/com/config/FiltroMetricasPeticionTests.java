@@ -0,0 +1,76 @@
+package maximacarga.com.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import maximacarga.com.entidades.Usuario;
+import maximacarga.com.servicios.TokenServicio;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class FiltroMetricasPeticionTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MeterRegistry registro;
+
+    @Autowired
+    private TokenServicio tokenServicio;
+
+    @Test
+    void registraElTrabajoDeHibernatePorEndpointYElTiempoDeLosServicios() throws Exception {
+        Usuario admin = new Usuario("600000020", "metricas@maximacarga.com", "ADMIN", "x");
+        admin.setIdUsuario(1L);
+
+        mockMvc.perform(get("/api/pedidos")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenServicio.generarToken(admin)))
+                .andExpect(status().isOk());
+
+        DistributionSummary consultas = registro.find("maximacarga.peticion.consultas")
+                .tags("method", "GET", "uri", "/api/pedidos")
+                .summary();
+        assertNotNull(consultas);
+        assertTrue(consultas.count() >= 1);
+        assertTrue(consultas.totalAmount() >= 1, "el listado ejecuta al menos una consulta");
+
+        assertNotNull(registro.find("maximacarga.peticion.entidades").tags("uri", "/api/pedidos").summary());
+        assertNotNull(registro.find("maximacarga.peticion.colecciones").tags("uri", "/api/pedidos").summary());
+
+        Timer servicio = registro.find("maximacarga.servicio")
+                .tags("class", "maximacarga.com.servicios.PedidoServicio")
+                .timer();
+        assertNotNull(servicio, "PedidoServicio está marcado con @Timed");
+        assertTrue(servicio.count() >= 1);
+    }
+
+    @Test
+    void elDataSourceConContadorSigueExponiendoLasMetricasDeHikari() {
+        assertNotNull(registro.find("hikaricp.connections.active").gauge());
+    }
+
+    @Test
+    void fueraDeUnaPeticionNoSeCuenta() {
+        EstadisticasHibernate.Contadores contadores = EstadisticasHibernate.iniciar();
+        EstadisticasHibernate.terminar();
+
+        assertEquals(0, contadores.getConsultas());
+        assertEquals(0, contadores.getEntidades());
+        assertEquals(0, contadores.getColecciones());
+        assertEquals(0, ContadorSentencias.terminar());
+    }
+}
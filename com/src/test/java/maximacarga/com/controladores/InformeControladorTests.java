@@ -0,0 +1,171 @@
+package maximacarga.com.controladores;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import maximacarga.com.entidades.Pedido;
+import maximacarga.com.entidades.Pedido.EstadoPedido;
+import maximacarga.com.entidades.Producto;
+import maximacarga.com.entidades.Usuario;
+import maximacarga.com.repositorios.PedidoRepositorio;
+import maximacarga.com.repositorios.ProductoRepositorio;
+import maximacarga.com.repositorios.UsuarioRepositorio;
+import maximacarga.com.servicios.PedidoServicio;
+import maximacarga.com.servicios.TokenServicio;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class InformeControladorTests {
+
+    /** Día sin pedidos de otras pruebas: se mueven allí con actualizarPedido. */
+    private static final LocalDateTime DIA = LocalDateTime.of(2001, 3, 15, 10, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PedidoServicio pedidoServicio;
+
+    @Autowired
+    private PedidoRepositorio pedidoRepositorio;
+
+    @Autowired
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Autowired
+    private ProductoRepositorio productoRepositorio;
+
+    @Autowired
+    private TokenServicio tokenServicio;
+
+    @Test
+    void losAgregadosSiguenALosPedidosYCoincidenConElRecalculo() throws Exception {
+        Usuario usuario = usuarioRepositorio.save(
+                new Usuario("600000040", "informes@maximacarga.com", "ADMIN", "x"));
+        String token = "Bearer " + tokenServicio.generarToken(usuario);
+        Long barato = crearProducto("Informe barato", 2.0);
+        Long caro = crearProducto("Informe caro", 5.0);
+
+        pedidoServicio.crearPedido(usuario.getIdUsuario(), Map.of(String.valueOf(barato), 3));
+        pedidoServicio.crearPedido(usuario.getIdUsuario(), Map.of(String.valueOf(barato), 1, String.valueOf(caro), 2));
+        pedidoServicio.crearPedido(usuario.getIdUsuario(), Map.of(String.valueOf(caro), 4));
+
+        List<Pedido> pedidos = pedidoRepositorio.findAllByUsuarioId(usuario.getIdUsuario()).stream()
+                .sorted(Comparator.comparing(Pedido::getId))
+                .toList();
+        for (Pedido pedido : pedidos) {
+            Pedido datos = new Pedido();
+            datos.setFecha(DIA);
+            datos.setTotal(pedido.getTotal());
+            datos.setUsuarioId(usuario.getIdUsuario());
+            pedidoServicio.actualizarPedido(pedido.getId(), datos);
+        }
+
+        pedidoServicio.cambiarEstado(pedidos.get(0).getId(), EstadoPedido.CANCELADO);
+        pedidoServicio.cambiarEstado(pedidos.get(1).getId(), EstadoPedido.ENVIADO);
+        pedidoServicio.eliminarPedido(pedidos.get(2).getId());
+
+        // Queda el pedido 2 enviado (2 + 10) y el 1 cancelado
+        String ventas = comprobarVentas(token);
+        String masVendidos = comprobarMasVendidos(token, barato, caro);
+
+        mockMvc.perform(post("/api/informes/recalcular")
+                        .param("desde", "2001-03-01").param("hasta", "2001-03-31")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk());
+
+        assertThat(comprobarVentas(token)).isEqualTo(ventas);
+        assertThat(comprobarMasVendidos(token, barato, caro)).isEqualTo(masVendidos);
+    }
+
+    @Test
+    void unPeriodoNoValidoDevuelve400() throws Exception {
+        Usuario usuario = usuarioRepositorio.save(
+                new Usuario("600000041", "informes-400@maximacarga.com", "ADMIN", "x"));
+        String token = "Bearer " + tokenServicio.generarToken(usuario);
+
+        mockMvc.perform(get("/api/informes/ventas")
+                        .param("desde", "2001-03-15").param("hasta", "2001-03-14")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/informes/productos-mas-vendidos")
+                        .param("desde", "1990-01-01").param("hasta", "2030-01-01")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void soloLosAdministradoresVenLosInformes() throws Exception {
+        Usuario cliente = usuarioRepositorio.save(
+                new Usuario("600000042", "informes-cliente@maximacarga.com", "CLIENTE", "x"));
+        String token = "Bearer " + tokenServicio.generarToken(cliente);
+
+        mockMvc.perform(get("/api/informes/ventas")
+                        .param("desde", "2001-03-14").param("hasta", "2001-03-16")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/informes/productos-mas-vendidos")
+                        .param("desde", "2001-03-14").param("hasta", "2001-03-16")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/informes/recalcular")
+                        .param("desde", "2001-03-01").param("hasta", "2001-03-31")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isForbidden());
+    }
+
+    private String comprobarVentas(String token) throws Exception {
+        return mockMvc.perform(get("/api/informes/ventas")
+                        .param("desde", "2001-03-14").param("hasta", "2001-03-16")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].fecha").value("2001-03-14"))
+                .andExpect(jsonPath("$[0].pedidos").value(0))
+                .andExpect(jsonPath("$[1].pedidos").value(2))
+                .andExpect(jsonPath("$[1].importe").value(12.0))
+                .andExpect(jsonPath("$[1].pedidosPorEstado.ENVIADO").value(1))
+                .andExpect(jsonPath("$[1].pedidosPorEstado.CANCELADO").value(1))
+                .andExpect(jsonPath("$[1].pedidosPorEstado.EN_PREPARACION").value(0))
+                .andExpect(jsonPath("$[2].pedidos").value(0))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private String comprobarMasVendidos(String token, Long barato, Long caro) throws Exception {
+        return mockMvc.perform(get("/api/informes/productos-mas-vendidos")
+                        .param("desde", "2001-03-15").param("hasta", "2001-03-15")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].productoId").value(caro))
+                .andExpect(jsonPath("$[0].nombre").value("Informe caro"))
+                .andExpect(jsonPath("$[0].unidades").value(2))
+                .andExpect(jsonPath("$[0].importe").value(10.0))
+                .andExpect(jsonPath("$[1].productoId").value(barato))
+                .andExpect(jsonPath("$[1].unidades").value(1))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    private Long crearProducto(String nombre, double precio) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setPrecio(precio);
+        producto.setStock(100);
+        return productoRepositorio.save(producto).getIdProducto();
+    }
+}
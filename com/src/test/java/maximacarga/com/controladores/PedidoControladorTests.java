@@ -0,0 +1,287 @@
+package maximacarga.com.controladores;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import maximacarga.com.config.ContadorSentencias;
+import maximacarga.com.entidades.Producto;
+import maximacarga.com.entidades.Usuario;
+import maximacarga.com.repositorios.ProductoRepositorio;
+import maximacarga.com.repositorios.UsuarioRepositorio;
+import maximacarga.com.servicios.PedidoServicio;
+import maximacarga.com.servicios.TokenServicio;
+
+/**
+ * Presupuestos de sentencias SQL de los endpoints de pedidos.
+ * Cada endpoint tiene que hacer las mismas sentencias con 1 pedido
+ * que con 20: si crece con el número de pedidos o de líneas hay un N+1.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class PedidoControladorTests {
+
+    /** Listados: la consulta de pedidos con sus líneas (JOIN FETCH). */
+    private static final long PRESUPUESTO_LISTADO = 2;
+
+    /**
+     * Crear un pedido: usuario, productos, UPDATE del stock, secuencias
+     * (cuando se acaban los IDs reservados), INSERT del pedido y un lote
+     * con las líneas. Las ventas del día se escriben después, al volcarlas.
+     */
+    private static final long PRESUPUESTO_CREAR = 8;
+
+    /** Exportar: una sola consulta que se lee por bloques. */
+    private static final long PRESUPUESTO_EXPORTAR = 1;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PedidoServicio pedidoServicio;
+
+    @Autowired
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Autowired
+    private ProductoRepositorio productoRepositorio;
+
+    @Autowired
+    private TokenServicio tokenServicio;
+
+    @Autowired
+    private PedidoControlador pedidoControlador;
+
+    /** Sentencias JDBC que ejecutó la petición (las apunta FiltroMetricasPeticion). */
+    static long sentencias(MvcResult resultado) {
+        Object valor = resultado.getRequest().getAttribute(ContadorSentencias.ATRIBUTO);
+        assertThat(valor).as("la petición pasa por FiltroMetricasPeticion").isNotNull();
+        return (Long) valor;
+    }
+
+    @Test
+    void losListadosDePedidosNoCrecenConElNumeroDePedidos() throws Exception {
+        Usuario usuario = usuarioRepositorio.save(
+                new Usuario("600000030", "presupuesto@maximacarga.com", "ADMIN", "x"));
+        String token = "Bearer " + tokenServicio.generarToken(usuario);
+        List<Long> productos = crearProductos("Listado", 3);
+
+        pedidoServicio.crearPedido(usuario.getIdUsuario(), carrito(productos));
+        long todosConUno = sentencias(mockMvc.perform(get("/api/pedidos")
+                .header(HttpHeaders.AUTHORIZATION, token)).andExpect(status().isOk()).andReturn());
+        long delUsuarioConUno = sentencias(mockMvc.perform(get("/api/pedidos/usuario/{id}", usuario.getIdUsuario())
+                .header(HttpHeaders.AUTHORIZATION, token)).andExpect(status().isOk()).andReturn());
+
+        for (int i = 0; i < 19; i++) {
+            pedidoServicio.crearPedido(usuario.getIdUsuario(), carrito(productos));
+        }
+        long todosConVeinte = sentencias(mockMvc.perform(get("/api/pedidos")
+                .header(HttpHeaders.AUTHORIZATION, token)).andExpect(status().isOk()).andReturn());
+        long delUsuarioConVeinte = sentencias(mockMvc.perform(get("/api/pedidos/usuario/{id}", usuario.getIdUsuario())
+                .header(HttpHeaders.AUTHORIZATION, token)).andExpect(status().isOk()).andReturn());
+
+        assertThat(todosConVeinte).isEqualTo(todosConUno).isLessThanOrEqualTo(PRESUPUESTO_LISTADO);
+        assertThat(delUsuarioConVeinte).isEqualTo(delUsuarioConUno).isLessThanOrEqualTo(PRESUPUESTO_LISTADO);
+    }
+
+    @Test
+    void crearUnPedidoNoCreceConElNumeroDeLineas() throws Exception {
+        Usuario usuario = usuarioRepositorio.save(
+                new Usuario("600000031", "presupuesto-crear@maximacarga.com", "CLIENTE", "x"));
+        String token = "Bearer " + tokenServicio.generarToken(usuario);
+
+        long conDosLineas = sentencias(crearPedido(usuario, token, crearProductos("Dos", 2)));
+        long conVeinteLineas = sentencias(crearPedido(usuario, token, crearProductos("Veinte", 20)));
+
+        // No se compara una con otra: las secuencias reservan 50 IDs por
+        // llamada, así que solo algunos pedidos las consultan
+        assertThat(conDosLineas).isLessThanOrEqualTo(PRESUPUESTO_CREAR);
+        assertThat(conVeinteLineas).isLessThanOrEqualTo(PRESUPUESTO_CREAR);
+    }
+
+    @Test
+    void laExportacionSaleEnCsvYNdjsonConUnaSolaConsulta() throws Exception {
+        Usuario usuario = usuarioRepositorio.save(
+                new Usuario("600000032", "exportar@maximacarga.com", "ADMIN", "x"));
+        String token = "Bearer " + tokenServicio.generarToken(usuario);
+        List<Long> productos = crearProductos("Tornillo, \"grande\"", 2);
+
+        for (int i = 0; i < 3; i++) {
+            pedidoServicio.crearPedido(usuario.getIdUsuario(), carrito(productos));
+        }
+
+        MvcResult csv = mockMvc.perform(get("/api/pedidos/exportar")
+                        .param("usuarioId", String.valueOf(usuario.getIdUsuario()))
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/csv;charset=UTF-8"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"pedidos.csv\""))
+                .andReturn();
+        String[] filas = csv.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\r\n");
+        assertThat(filas).hasSize(1 + 3 * 2);
+        assertThat(filas[0]).startsWith("pedido_id,usuario_id,fecha");
+        assertThat(filas[1]).contains(",\"Tornillo, \"\"grande\"\" 0\",");
+        assertThat(sentencias(csv)).isLessThanOrEqualTo(PRESUPUESTO_EXPORTAR);
+
+        MvcResult ndjson = mockMvc.perform(get("/api/pedidos/exportar")
+                        .param("formato", "ndjson")
+                        .param("usuarioId", String.valueOf(usuario.getIdUsuario()))
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andReturn();
+        String[] pedidos = ndjson.getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertThat(pedidos).hasSize(3);
+        for (String linea : pedidos) {
+            JsonNode pedido = objectMapper.readTree(linea);
+            assertThat(pedido.get("usuarioId").asLong()).isEqualTo(usuario.getIdUsuario());
+            assertThat(pedido.get("lineas")).hasSize(2);
+        }
+        assertThat(sentencias(ndjson)).isLessThanOrEqualTo(PRESUPUESTO_EXPORTAR);
+
+        mockMvc.perform(get("/api/pedidos/exportar").param("formato", "xml")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void soloLosAdministradoresExportanYComoMucho2ALaVez() throws Exception {
+        Usuario cliente = usuarioRepositorio.save(
+                new Usuario("600000033", "exportar-cliente@maximacarga.com", "CLIENTE", "x"));
+        mockMvc.perform(get("/api/pedidos/exportar")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenServicio.generarToken(cliente)))
+                .andExpect(status().isForbidden());
+
+        Usuario admin = usuarioRepositorio.save(
+                new Usuario("600000034", "exportar-limite@maximacarga.com", "ADMIN", "x"));
+        String token = tokenServicio.generarToken(admin);
+
+        // Dos exportaciones que se quedan escribiendo en un cliente lento
+        CountDownLatch escribiendo = new CountDownLatch(2);
+        CountDownLatch soltar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<?>> lentas = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            lentas.add(executor.submit(() -> {
+                MockHttpServletRequest request = new MockHttpServletRequest();
+                request.setAttribute(TokenServicio.ATRIBUTO_TOKEN, tokenServicio.verificar(token));
+                pedidoControlador.exportarPedidos("csv", null, admin.getIdUsuario(), null, null,
+                        request, new RespuestaLenta(escribiendo, soltar));
+                return null;
+            }));
+        }
+
+        try {
+            assertThat(escribiendo.await(10, TimeUnit.SECONDS)).isTrue();
+            mockMvc.perform(get("/api/pedidos/exportar").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+        } finally {
+            soltar.countDown();
+        }
+        for (Future<?> lenta : lentas) {
+            lenta.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        mockMvc.perform(get("/api/pedidos/exportar").header(HttpHeaders.AUTHORIZATION, "Bearer " + token))
+                .andExpect(status().isOk());
+    }
+
+    /** Respuesta cuyo primer envío espera hasta que se le indica. */
+    private static final class RespuestaLenta extends MockHttpServletResponse {
+
+        private final CountDownLatch escribiendo;
+        private final CountDownLatch soltar;
+
+        RespuestaLenta(CountDownLatch escribiendo, CountDownLatch soltar) {
+            this.escribiendo = escribiendo;
+            this.soltar = soltar;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return new ServletOutputStream() {
+                private boolean esperado;
+
+                @Override
+                public void write(int b) {
+                    if (!esperado) {
+                        esperado = true;
+                        escribiendo.countDown();
+                        try {
+                            soltar.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener listener) {
+                }
+            };
+        }
+    }
+
+    private MvcResult crearPedido(Usuario usuario, String token, List<Long> productos) throws Exception {
+        return mockMvc.perform(post("/api/pedidos/{id}", usuario.getIdUsuario())
+                        .header(HttpHeaders.AUTHORIZATION, token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(carrito(productos))))
+                .andExpect(status().isOk())
+                .andReturn();
+    }
+
+    private List<Long> crearProductos(String prefijo, int cuantos) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < cuantos; i++) {
+            Producto producto = new Producto();
+            producto.setNombre(prefijo + " " + i);
+            producto.setPrecio(2.0);
+            producto.setStock(1000);
+            ids.add(productoRepositorio.save(producto).getIdProducto());
+        }
+        return ids;
+    }
+
+    private static Map<String, Integer> carrito(List<Long> productos) {
+        return productos.stream().collect(Collectors.toMap(String::valueOf, id -> 1));
+    }
+}
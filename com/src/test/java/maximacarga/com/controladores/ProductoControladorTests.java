@@ -0,0 +1,366 @@
+package maximacarga.com.controladores;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import maximacarga.com.dto.MetadatosImagen;
+import maximacarga.com.entidades.Producto;
+import maximacarga.com.entidades.Usuario;
+import maximacarga.com.servicios.ImagenProductoServicio;
+import maximacarga.com.servicios.ProductoServicio;
+import maximacarga.com.servicios.TokenServicio;
+import maximacarga.com.servicios.UsuarioServicio;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProductoControladorTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductoServicio productoServicio;
+
+    @Autowired
+    private UsuarioServicio usuarioServicio;
+
+    @Autowired
+    private TokenServicio tokenServicio;
+
+    @Autowired
+    private ImagenProductoServicio imagenServicio;
+
+    @Autowired
+    private MeterRegistry registro;
+
+    /** PNG de prueba con el tamaño indicado. */
+    static byte[] png(int ancho, int alto) {
+        BufferedImage imagen = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = imagen.createGraphics();
+        g.setColor(Color.ORANGE);
+        g.fillRect(0, 0, ancho, alto);
+        g.dispose();
+        try {
+            ByteArrayOutputStream salida = new ByteArrayOutputStream();
+            ImageIO.write(imagen, "png", salida);
+            return salida.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    void elCatalogoCompletoEsUnaSolaConsulta() throws Exception {
+        crearProductos("Catalogo", 2);
+        long conPocos = PedidoControladorTests.sentencias(
+                mockMvc.perform(get("/api/productos")).andExpect(status().isOk()).andReturn());
+
+        crearProductos("Catalogo grande", 30);
+        long conMas = PedidoControladorTests.sentencias(
+                mockMvc.perform(get("/api/productos")).andExpect(status().isOk()).andReturn());
+
+        assertEquals(conPocos, conMas);
+        assertEquals(1, conMas, "SELECT de productos, sin cargar imágenes ni relaciones");
+    }
+
+    @Test
+    void laCacheDeProductosSePublicaComoMetricaYNoEnLaApi() throws Exception {
+        Long id = crearProducto("Cacheado", null);
+        double aciertos = registro.get("cache.gets").tags("cache", "productos", "result", "hit")
+                .functionCounter().count();
+
+        productoServicio.obtenerPorId(id);
+        productoServicio.obtenerPorId(id);
+
+        assertEquals(aciertos + 1, registro.get("cache.gets").tags("cache", "productos", "result", "hit")
+                .functionCounter().count());
+        mockMvc.perform(get("/api/productos/cache/estadisticas"))
+                .andExpect(status().isNotFound());
+    }
+
+    private void crearProductos(String prefijo, int cuantos) {
+        for (int i = 0; i < cuantos; i++) {
+            Producto producto = new Producto();
+            producto.setNombre(prefijo + " " + i);
+            producto.setPrecio(3.0);
+            producto.setStock(5);
+            productoServicio.crearProducto(producto);
+        }
+    }
+
+    @Test
+    void laImportacionValidaCadaFilaYGuardaPorLotes() throws Exception {
+        Usuario admin = usuarioServicio.crearUsuario(
+                new Usuario("600000021", "importar@maximacarga.com", "ADMIN", "hash"));
+        String token = "Bearer " + tokenServicio.generarToken(admin);
+
+        Producto existente = new Producto();
+        existente.setNombre("Antes");
+        existente.setPrecio(1.0);
+        existente.setStock(1);
+        Long idExistente = productoServicio.crearProducto(existente).getIdProducto();
+
+        StringBuilder csv = new StringBuilder("nombre,precio,stock,idProducto,descripcion\n");
+        csv.append("Después,7.5,3,").append(idExistente).append(",\"Con coma, y \"\"comillas\"\"\"\n");
+        csv.append(",1.0,1,,\n");                 // 2: sin nombre
+        csv.append("Caro,-1,1,,\n");              // 3: precio negativo
+        csv.append("Raro,abc,1,,\n");             // 4: precio que no es número
+        csv.append("Fantasma,1,1,999999999,\n");  // 5: ID que no existe
+        for (int i = 0; i < 250; i++) {
+            csv.append("Importado ").append(i).append(",2.25,10,,\n");
+        }
+
+        MvcResult resultado = mockMvc.perform(post("/api/productos/importar")
+                        .contentType("text/csv")
+                        .content(csv.toString())
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.creados").value(250))
+                .andExpect(jsonPath("$.actualizados").value(1))
+                .andExpect(jsonPath("$.errores").value(4))
+                .andExpect(jsonPath("$.filas[0].resultado").value("ACTUALIZADO"))
+                .andExpect(jsonPath("$.filas[1].mensaje").value("El nombre es obligatorio"))
+                .andExpect(jsonPath("$.filas[2].mensaje").value("El precio no es válido"))
+                .andExpect(jsonPath("$.filas[3].resultado").value("ERROR"))
+                .andExpect(jsonPath("$.filas[4].mensaje").value("Producto no encontrado: 999999999"))
+                .andExpect(jsonPath("$.filas[5].resultado").value("CREADO"))
+                .andReturn();
+
+        // Un lote: SELECT de los IDs existentes, UPDATE en lote e INSERT en lote
+        long sentencias = PedidoControladorTests.sentencias(resultado);
+        assertTrue(sentencias <= 3, "sentencias: " + sentencias);
+
+        Producto actualizado = productoServicio.obtenerPorId(idExistente);
+        assertEquals("Después", actualizado.getNombre());
+        assertEquals("Con coma, y \"comillas\"", actualizado.getDescripcion());
+        assertEquals(3, actualizado.getStock());
+
+        mockMvc.perform(post("/api/productos/importar")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"nombre\":\"Json\",\"precio\":4.5,\"stock\":2},"
+                                + "{\"nombre\":\"Json sin stock\",\"precio\":4.5},"
+                                + "{\"nombre\":\"Json roto\",\"precio\":{\"no\":1},\"stock\":2},"
+                                + "{\"nombre\":\"Json bueno\",\"precio\":1,\"stock\":0}]")
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.creados").value(2))
+                .andExpect(jsonPath("$.errores").value(2))
+                .andExpect(jsonPath("$.filas[1].mensaje").value("El stock no es válido"))
+                .andExpect(jsonPath("$.filas[2].fila").value(3))
+                .andExpect(jsonPath("$.filas[3].resultado").value("CREADO"));
+    }
+
+    @Test
+    void laBusquedaIgnoraAcentosAdmitePrefijosYSigueLasEscrituras() throws Exception {
+        Long camion = crearProducto("Camión grúa articulada", "Para cargas pesadas");
+        Long grua = crearProducto("Repuesto de grúa", "Compatible con el camión articulado");
+        crearProducto("Carretilla eléctrica", "Sin grúa");
+
+        // Palabra completa en el nombre antes que prefijo o descripción
+        MvcResult resultado = mockMvc.perform(get("/api/productos/buscar").param("q", "CAMION artic"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].idProducto").value(camion))
+                .andExpect(jsonPath("$[0].nombre").value("Camión grúa articulada"))
+                .andExpect(jsonPath("$[1].idProducto").value(grua))
+                .andReturn();
+        assertEquals(1, PedidoControladorTests.sentencias(resultado), "solo el SELECT de los resúmenes");
+
+        mockMvc.perform(get("/api/productos/buscar").param("q", "grú").param("limite", "1"))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].idProducto").value(camion));
+
+        Producto datos = new Producto();
+        datos.setNombre("Volquete");
+        datos.setPrecio(3.0);
+        datos.setStock(5);
+        productoServicio.actualizarProducto(camion, datos);
+        productoServicio.eliminarProductoPorId(grua);
+
+        mockMvc.perform(get("/api/productos/buscar").param("q", "camión articulada"))
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/api/productos/buscar").param("q", "volq"))
+                .andExpect(jsonPath("$[0].idProducto").value(camion));
+
+        mockMvc.perform(post("/api/productos/importar")
+                        .contentType("text/csv")
+                        .content("nombre,precio,stock,descripcion\nPalé importado,1,1,Madera tratada\n")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + tokenServicio.generarToken(
+                                usuarioServicio.crearUsuario(new Usuario("600000022",
+                                        "buscar@maximacarga.com", "ADMIN", "hash")))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/productos/buscar").param("q", "pale madera"))
+                .andExpect(jsonPath("$[0].nombre").value("Palé importado"));
+    }
+
+    private Long crearProducto(String nombre, String descripcion) {
+        Producto producto = new Producto();
+        producto.setNombre(nombre);
+        producto.setDescripcion(descripcion);
+        producto.setPrecio(3.0);
+        producto.setStock(5);
+        return productoServicio.crearProducto(producto).getIdProducto();
+    }
+
+    @Test
+    void laImagenSubidaPorMultipartSeSirveConSuTipoYConMiniatura() throws Exception {
+        Usuario admin = usuarioServicio.crearUsuario(
+                new Usuario("600000020", "imagenes@maximacarga.com", "ADMIN", "hash"));
+        String token = "Bearer " + tokenServicio.generarToken(admin);
+
+        Producto nuevo = new Producto();
+        nuevo.setNombre("Palé");
+        nuevo.setPrecio(12.5);
+        nuevo.setStock(10);
+        Producto producto = productoServicio.crearProducto(nuevo);
+        byte[] original = png(800, 400);
+
+        mockMvc.perform(multipart("/api/productos/{id}/imagen", producto.getIdProducto())
+                        .file(new MockMultipartFile("imagen", "pale.png", "application/octet-stream", original))
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/productos/{id}/imagen", producto.getIdProducto()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/png"))
+                .andExpect(content().bytes(original));
+
+        byte[] miniatura = mockMvc.perform(get("/api/productos/{id}/imagen/miniatura", producto.getIdProducto()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/jpeg"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        BufferedImage leida = ImageIO.read(new ByteArrayInputStream(miniatura));
+        assertEquals(256, leida.getWidth());
+        assertEquals(128, leida.getHeight());
+
+        mockMvc.perform(get("/api/productos/pagina").param("despuesDe", String.valueOf(producto.getIdProducto() - 1))
+                        .param("tamanio", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.elementos[0].urlMiniatura")
+                        .value("/api/productos/" + producto.getIdProducto() + "/imagen/miniatura"));
+
+        mockMvc.perform(multipart("/api/productos/{id}/imagen", producto.getIdProducto())
+                        .file(new MockMultipartFile("imagen", "falsa.png", "image/png", "no soy una imagen".getBytes()))
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void laImagenSeSirvePorRangosDesdeElFichero() throws Exception {
+        Producto nuevo = new Producto();
+        nuevo.setNombre("Cinta");
+        nuevo.setPrecio(3.0);
+        nuevo.setStock(5);
+        nuevo.setImagenProducto(png(300, 300));
+        Producto producto = productoServicio.crearProducto(nuevo);
+        byte[] original = nuevo.getImagenProducto();
+        int tamanio = original.length;
+
+        String etag = mockMvc.perform(get("/api/productos/{id}/imagen", producto.getIdProducto()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, tamanio))
+                .andExpect(content().bytes(original))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/productos/{id}/imagen", producto.getIdProducto())
+                        .header(HttpHeaders.RANGE, "bytes=10-49"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-49/" + tamanio))
+                .andExpect(content().bytes(Arrays.copyOfRange(original, 10, 50)));
+
+        mockMvc.perform(get("/api/productos/{id}/imagen", producto.getIdProducto())
+                        .header(HttpHeaders.RANGE, "bytes=-20")
+                        .header(HttpHeaders.IF_RANGE, etag))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes(Arrays.copyOfRange(original, tamanio - 20, tamanio)));
+
+        // Si la versión ha cambiado (If-Range no coincide) se envía entera
+        mockMvc.perform(get("/api/productos/{id}/imagen", producto.getIdProducto())
+                        .header(HttpHeaders.RANGE, "bytes=0-9")
+                        .header(HttpHeaders.IF_RANGE, "\"otra-version\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(original));
+
+        mockMvc.perform(get("/api/productos/{id}/imagen", producto.getIdProducto())
+                        .header(HttpHeaders.RANGE, "bytes=" + tamanio + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + tamanio));
+    }
+
+    @Test
+    void variasSubidasALaVezDejanLaFilaYLosFicherosDeLaMismaImagen() throws Exception {
+        int subidas = 8;
+        Long id = crearProducto("Imagen disputada", null);
+        ExecutorService executor = Executors.newFixedThreadPool(subidas);
+
+        for (int ronda = 0; ronda < 5; ronda++) {
+            CountDownLatch salida = new CountDownLatch(1);
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int i = 0; i < subidas; i++) {
+                // Menos de 256 px: la miniatura tiene el mismo tamaño que el original
+                byte[] imagen = png(100 + 20 * i, 100);
+                tareas.add(executor.submit(() -> {
+                    salida.await();
+                    imagenServicio.guardarImagen(id, imagen);
+                    return null;
+                }));
+            }
+            salida.countDown();
+            for (Future<?> tarea : tareas) {
+                tarea.get(30, TimeUnit.SECONDS);
+            }
+
+            MetadatosImagen metadatos = imagenServicio.obtenerMetadatos(id);
+            byte[] original = Files.readAllBytes(imagenServicio.ficheroImagen(id));
+            assertEquals(metadatos.getHash(), HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(original)));
+
+            BufferedImage leida = ImageIO.read(new ByteArrayInputStream(original));
+            BufferedImage miniatura = ImageIO.read(imagenServicio.ficheroMiniatura(id).toFile());
+            assertEquals(leida.getWidth(), miniatura.getWidth());
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,87 @@
+package maximacarga.com.controladores;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import maximacarga.com.entidades.Usuario;
+import maximacarga.com.servicios.TokenServicio;
+import maximacarga.com.servicios.UsuarioServicio;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UsuarioControladorTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UsuarioServicio usuarioServicio;
+
+    @Autowired
+    private TokenServicio tokenServicio;
+
+    @Test
+    void elPerfilNoIncluyeLaFotoNiLasCredencialesYLaFotoSeSirveAparte() throws Exception {
+        Usuario usuario = usuarioServicio.crearUsuario(
+                new Usuario("600000010", "perfil@maximacarga.com", "CLIENTE", "hash"));
+        byte[] foto = ProductoControladorTests.png(40, 40);
+        usuarioServicio.guardarFoto(usuario.getIdUsuario(), foto);
+
+        String token = "Bearer " + tokenServicio.generarToken(usuario);
+
+        mockMvc.perform(get("/api/usuarios/{id}", usuario.getIdUsuario())
+                        .header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.correoElectronico").value("perfil@maximacarga.com"))
+                .andExpect(jsonPath("$.urlFoto").value("/api/usuarios/" + usuario.getIdUsuario() + "/foto"))
+                .andExpect(jsonPath("$.foto").doesNotExist())
+                .andExpect(jsonPath("$.contrasena").doesNotExist())
+                .andExpect(jsonPath("$.tieneFoto").doesNotExist());
+
+        mockMvc.perform(get("/api/usuarios/listar").header(HttpHeaders.AUTHORIZATION, token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].correoElectronico").value(hasItem("perfil@maximacarga.com")));
+
+        mockMvc.perform(get("/api/usuarios/{id}/foto", usuario.getIdUsuario()))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(foto));
+    }
+
+    @Test
+    void laFotoSeRevalidaConEtagYDevuelve304SinCambios() throws Exception {
+        Usuario usuario = usuarioServicio.crearUsuario(
+                new Usuario("600000011", "etag@maximacarga.com", "CLIENTE", "hash"));
+        usuarioServicio.guardarFoto(usuario.getIdUsuario(), ProductoControladorTests.png(20, 20));
+
+        String etag = mockMvc.perform(get("/api/usuarios/{id}/foto", usuario.getIdUsuario()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/usuarios/{id}/foto", usuario.getIdUsuario())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+
+        byte[] nueva = ProductoControladorTests.png(30, 30);
+        usuarioServicio.guardarFoto(usuario.getIdUsuario(), nueva);
+
+        mockMvc.perform(get("/api/usuarios/{id}/foto", usuario.getIdUsuario())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(nueva));
+    }
+}
@@ -0,0 +1,33 @@
+package maximacarga.com.servicios;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class IndiceBusquedaProductosTests {
+
+    @Test
+    void unPrefijoEnElNombrePuntuaMasQueLaPalabraCompletaEnLaDescripcion() {
+        IndiceBusquedaProductos indice = new IndiceBusquedaProductos();
+        indice.indexar(1L, "Caja", "Para torn y taladro");
+        indice.indexar(2L, "Tornillos", "Caja de torn");
+        indice.indexar(3L, "Torn", null);
+
+        assertThat(indice.buscar("torn", 10)).containsExactly(3L, 2L, 1L);
+        assertThat(indice.buscar("torn", 1)).containsExactly(3L);
+    }
+
+    @Test
+    void laCargaInicialNoRecuperaUnProductoBorradoDuranteElla() {
+        IndiceBusquedaProductos indice = new IndiceBusquedaProductos();
+        indice.empezarCarga();
+        // Borrado confirmado después de leer la página que lo contenía
+        indice.quitar(7L);
+        indice.indexarSiFalta(7L, "Fantasma", null);
+        indice.indexarSiFalta(8L, "Fantasma vivo", null);
+        indice.terminarCarga();
+
+        assertThat(indice.buscar("fantasma", 10)).containsExactly(8L);
+        assertThat(indice.tamanio()).isEqualTo(1);
+    }
+}
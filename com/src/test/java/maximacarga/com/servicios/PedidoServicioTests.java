@@ -0,0 +1,322 @@
+package maximacarga.com.servicios;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManagerFactory;
+import maximacarga.com.dto.PaginaResultado;
+import maximacarga.com.dto.PedidoDTO;
+import maximacarga.com.dto.VentasDia;
+import maximacarga.com.entidades.Pedido;
+import maximacarga.com.entidades.Pedido.EstadoPedido;
+import maximacarga.com.entidades.Producto;
+import maximacarga.com.entidades.Usuario;
+import maximacarga.com.repositorios.PedidoRepositorio;
+import maximacarga.com.repositorios.ProductoRepositorio;
+import maximacarga.com.repositorios.UsuarioRepositorio;
+
+@SpringBootTest
+class PedidoServicioTests {
+
+    private static final int LINEAS = 120;
+
+    @Autowired
+    private PedidoServicio pedidoServicio;
+
+    @Autowired
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Autowired
+    private ProductoRepositorio productoRepositorio;
+
+    @Autowired
+    private PedidoRepositorio pedidoRepositorio;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private InformeVentasServicio informeVentas;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void crearPedidoAgrupaLosInsertDeLasLineasEnLotes() {
+        Usuario usuario = usuarioRepositorio.save(
+                new Usuario("600000000", "lotes@maximacarga.com", "CLIENTE", "x"));
+
+        Map<String, Integer> carrito = new HashMap<>();
+        for (int i = 0; i < LINEAS; i++) {
+            Producto producto = new Producto();
+            producto.setNombre("Producto " + i);
+            producto.setPrecio(1.5);
+            producto.setStock(10);
+            carrito.put(productoRepositorio.save(producto).getIdProducto().toString(), 2);
+        }
+
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+
+        pedidoServicio.crearPedido(usuario.getIdUsuario(), carrito);
+
+        // usuario + productos + secuencias + INSERT del pedido + lotes de líneas,
+        // frente a los más de 120 INSERT que se hacían con IDENTITY
+        assertThat(estadisticas.getEntityInsertCount()).isEqualTo(LINEAS + 1);
+        assertThat(estadisticas.getPrepareStatementCount()).isLessThanOrEqualTo(12);
+
+        List<Pedido> pedidos = pedidoRepositorio.findAllByUsuarioId(usuario.getIdUsuario());
+        assertThat(pedidos).hasSize(1);
+    }
+
+    @Test
+    void listarPorUsuarioCargaPedidosYLineasEnUnaConsulta() {
+        Usuario usuario = usuarioRepositorio.save(
+                new Usuario("600000001", "historial@maximacarga.com", "CLIENTE", "x"));
+
+        Producto producto = new Producto();
+        producto.setNombre("Producto historial");
+        producto.setPrecio(3.0);
+        producto.setStock(100);
+        String idProducto = productoRepositorio.save(producto).getIdProducto().toString();
+
+        for (int i = 1; i <= 5; i++) {
+            pedidoServicio.crearPedido(usuario.getIdUsuario(), Map.of(idProducto, i));
+        }
+
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        estadisticas.clear();
+
+        List<PedidoDTO> pedidos = pedidoServicio.listarPorUsuario(usuario.getIdUsuario());
+
+        assertThat(pedidos).hasSize(5);
+        assertThat(pedidos).allSatisfy(p -> assertThat(p.lineas()).hasSize(1));
+        assertThat(estadisticas.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void buscarFiltraPorUsuarioYEstadoYLimitaElTamanioDePagina() {
+        Usuario usuario = usuarioRepositorio.save(
+                new Usuario("600000002", "busqueda@maximacarga.com", "CLIENTE", "x"));
+
+        Producto producto = new Producto();
+        producto.setNombre("Producto búsqueda");
+        producto.setPrecio(2.0);
+        producto.setStock(100);
+        String idProducto = productoRepositorio.save(producto).getIdProducto().toString();
+
+        for (int i = 1; i <= 3; i++) {
+            pedidoServicio.crearPedido(usuario.getIdUsuario(), Map.of(idProducto, i));
+        }
+        Long enviado = pedidoServicio.listarPorUsuario(usuario.getIdUsuario()).get(0).id();
+        pedidoServicio.cambiarEstado(enviado, EstadoPedido.ENVIADO);
+
+        PaginaResultado<PedidoDTO> pagina = pedidoServicio.buscar(EstadoPedido.EN_PREPARACION,
+                usuario.getIdUsuario(), null, null, 0, 1000, "total", false);
+
+        assertThat(pagina.tamanio()).isEqualTo(PedidoServicio.TAMANIO_PAGINA_MAXIMO);
+        assertThat(pagina.totalElementos()).isEqualTo(2);
+        assertThat(pagina.contenido()).extracting(PedidoDTO::total)
+                .isSortedAccordingTo(Comparator.reverseOrder());
+        assertThat(pagina.contenido()).allSatisfy(p -> assertThat(p.lineas()).hasSize(1));
+    }
+
+    @Test
+    void crearPedidoNuncaVendeMasStockDelQueHayConCompradoresConcurrentes() throws Exception {
+        int stockInicial = 10;
+        int compradores = 40;
+
+        Usuario usuario = usuarioRepositorio.save(
+                new Usuario("600000003", "concurrencia@maximacarga.com", "CLIENTE", "x"));
+
+        Producto producto = new Producto();
+        producto.setNombre("Últimas unidades");
+        producto.setPrecio(9.99);
+        producto.setStock(stockInicial);
+        Long idProducto = productoRepositorio.save(producto).getIdProducto();
+
+        ExecutorService executor = Executors.newFixedThreadPool(compradores);
+        CountDownLatch salida = new CountDownLatch(1);
+        AtomicInteger vendidos = new AtomicInteger();
+        AtomicInteger rechazados = new AtomicInteger();
+
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int i = 0; i < compradores; i++) {
+            tareas.add(executor.submit(() -> {
+                salida.await();
+                try {
+                    pedidoServicio.crearPedido(usuario.getIdUsuario(), Map.of(idProducto.toString(), 1));
+                    vendidos.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    rechazados.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        salida.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(vendidos.get()).isEqualTo(stockInicial);
+        assertThat(rechazados.get()).isEqualTo(compradores - stockInicial);
+        assertThat(productoRepositorio.findById(idProducto).orElseThrow().getStock()).isZero();
+        assertThat(pedidoRepositorio.findAllByUsuarioId(usuario.getIdUsuario())).hasSize(stockInicial);
+    }
+
+    @Test
+    void unProductoAntiguoSinStockSeTrataComoStockIlimitado() {
+        Usuario usuario = usuarioRepositorio.save(
+                new Usuario("600000005", "sinstock@maximacarga.com", "CLIENTE", "x"));
+
+        Producto producto = new Producto();
+        producto.setNombre("Producto antiguo sin stock");
+        producto.setPrecio(1.0);
+        Long idProducto = productoRepositorio.save(producto).getIdProducto();
+
+        pedidoServicio.crearPedido(usuario.getIdUsuario(), Map.of(idProducto.toString(), 5));
+
+        assertThat(pedidoRepositorio.findAllByUsuarioId(usuario.getIdUsuario())).hasSize(1);
+        assertThat(productoRepositorio.findById(idProducto).orElseThrow().getStock()).isNull();
+    }
+
+    @Test
+    void cancelarUnPedidoALaVezDesdeVariosHilosSoloAjustaLasVentasUnaVez() throws Exception {
+        int hilos = 8;
+
+        Usuario usuario = usuarioRepositorio.save(
+                new Usuario("600000004", "cancelar@maximacarga.com", "CLIENTE", "x"));
+
+        Producto producto = new Producto();
+        producto.setNombre("Cancelado a la vez");
+        producto.setPrecio(4.0);
+        producto.setStock(100);
+        Long idProducto = productoRepositorio.save(producto).getIdProducto();
+
+        pedidoServicio.crearPedido(usuario.getIdUsuario(), Map.of(idProducto.toString(), 3));
+        Pedido pedido = pedidoRepositorio.findAllByUsuarioId(usuario.getIdUsuario()).get(0);
+        LocalDate dia = pedido.getFecha().toLocalDate();
+        VentasDia antes = informeVentas.ventasPorDia(dia, dia).get(0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        AtomicInteger cancelados = new AtomicInteger();
+        AtomicInteger rechazados = new AtomicInteger();
+
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int i = 0; i < hilos; i++) {
+            tareas.add(executor.submit(() -> {
+                salida.await();
+                try {
+                    pedidoServicio.cambiarEstado(pedido.getId(), EstadoPedido.CANCELADO);
+                    cancelados.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    rechazados.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        salida.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(cancelados.get()).isEqualTo(1);
+        assertThat(rechazados.get()).isEqualTo(hilos - 1);
+
+        VentasDia despues = informeVentas.ventasPorDia(dia, dia).get(0);
+        assertThat(despues.pedidosPorEstado().get(EstadoPedido.EN_PREPARACION))
+                .isEqualTo(antes.pedidosPorEstado().get(EstadoPedido.EN_PREPARACION) - 1);
+        assertThat(despues.pedidosPorEstado().get(EstadoPedido.CANCELADO))
+                .isEqualTo(antes.pedidosPorEstado().get(EstadoPedido.CANCELADO) + 1);
+        assertThat(jdbcTemplate.queryForObject(
+                "select unidades from ventas_producto_diarias where fecha = ? and producto_id = ?",
+                Long.class, dia, idProducto)).isZero();
+    }
+
+    @Test
+    void losPedidosNoEsperanALaFilaDeVentasDelDia() throws Exception {
+        int pedidos = 4;
+
+        Usuario usuario = usuarioRepositorio.save(
+                new Usuario("600000006", "agregados@maximacarga.com", "CLIENTE", "x"));
+
+        Producto producto = new Producto();
+        producto.setNombre("Venta del día");
+        producto.setPrecio(2.0);
+        producto.setStock(100);
+        String idProducto = productoRepositorio.save(producto).getIdProducto().toString();
+
+        pedidoServicio.crearPedido(usuario.getIdUsuario(), Map.of(idProducto, 1));
+        LocalDate dia = pedidoRepositorio.findAllByUsuarioId(usuario.getIdUsuario()).get(0)
+                .getFecha().toLocalDate();
+        long antes = informeVentas.ventasPorDia(dia, dia).get(0)
+                .pedidosPorEstado().get(EstadoPedido.EN_PREPARACION);
+
+        // Otra transacción tiene bloqueada la fila (hoy, EN_PREPARACION)
+        CountDownLatch bloqueada = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(pedidos + 1);
+        Future<?> bloqueo = executor.submit(() -> new TransactionTemplate(transactionManager)
+                .executeWithoutResult(estado -> {
+                    jdbcTemplate.queryForObject("select pedidos from ventas_diarias"
+                            + " where fecha = ? and estado = 'EN_PREPARACION' for update", Long.class, dia);
+                    bloqueada.countDown();
+                    try {
+                        soltar.await(30, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+
+        try {
+            assertThat(bloqueada.await(10, TimeUnit.SECONDS)).isTrue();
+
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int i = 0; i < pedidos; i++) {
+                tareas.add(executor.submit(
+                        () -> pedidoServicio.crearPedido(usuario.getIdUsuario(), Map.of(idProducto, 1))));
+            }
+            // Con la fila bloqueada los pedidos se confirman igualmente
+            for (Future<?> tarea : tareas) {
+                tarea.get(5, TimeUnit.SECONDS);
+            }
+            assertThat(pedidoRepositorio.findAllByUsuarioId(usuario.getIdUsuario())).hasSize(pedidos + 1);
+        } finally {
+            soltar.countDown();
+        }
+        bloqueo.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(informeVentas.ventasPorDia(dia, dia).get(0).pedidosPorEstado().get(EstadoPedido.EN_PREPARACION))
+                .isEqualTo(antes + pedidos);
+    }
+}
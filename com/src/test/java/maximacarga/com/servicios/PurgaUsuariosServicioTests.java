@@ -0,0 +1,172 @@
+package maximacarga.com.servicios;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.TimeZone;
+
+import javax.sql.DataSource;
+
+import org.h2.util.DateTimeUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import maximacarga.com.entidades.Pedido;
+import maximacarga.com.entidades.Pedido.EstadoPedido;
+import maximacarga.com.entidades.Usuario;
+import maximacarga.com.repositorios.PedidoRepositorio;
+import maximacarga.com.repositorios.UsuarioPurgaRepositorioImpl;
+import maximacarga.com.repositorios.UsuarioRepositorio;
+
+@SpringBootTest
+class PurgaUsuariosServicioTests {
+
+    @Autowired
+    private FotoUsuarioServicio fotoServicio;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Autowired
+    private PedidoRepositorio pedidoRepositorio;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${spring.datasource.url}")
+    private String urlBaseDatos;
+
+    @Test
+    void limpiaTokensCaducadosYCuentasSinActivarPorLotes() {
+        // Lotes de 2 filas para que cada limpieza necesite varias transacciones
+        SimpleMeterRegistry registro = new SimpleMeterRegistry();
+        PurgaUsuariosServicio purga = new PurgaUsuariosServicio(
+                usuarioRepositorio, fotoServicio, transactionManager, registro, 2, 200, 30);
+
+        LocalDateTime haceDosHoras = LocalDateTime.now().minusHours(2);
+        Instant haceDosMeses = Instant.now().minus(Duration.ofDays(60));
+
+        Long[] recuperacionCaducada = new Long[3];
+        for (int i = 0; i < recuperacionCaducada.length; i++) {
+            Usuario u = usuario("caducado" + i, true);
+            u.setTokenRecuperacion("a".repeat(64));
+            u.setFechaTokenRecuperacion(haceDosHoras);
+            recuperacionCaducada[i] = usuarioRepositorio.save(u).getIdUsuario();
+        }
+
+        Usuario vigente = usuario("vigente", true);
+        vigente.setTokenRecuperacion("b".repeat(64));
+        vigente.setFechaTokenRecuperacion(LocalDateTime.now());
+        Long idVigente = usuarioRepositorio.save(vigente).getIdUsuario();
+
+        Long[] abandonadas = new Long[3];
+        for (int i = 0; i < abandonadas.length; i++) {
+            Usuario u = usuario("abandonada" + i, false);
+            u.setTokenActivacion("abandonada-" + i);
+            u.setFechaExpiracionTokenActivacion(haceDosMeses);
+            abandonadas[i] = usuarioRepositorio.save(u).getIdUsuario();
+        }
+
+        // Sin activar pero con pedidos: se conserva (solo se borra su token)
+        Usuario conPedidos = usuario("conpedidos", false);
+        conPedidos.setTokenActivacion("conpedidos");
+        conPedidos.setFechaExpiracionTokenActivacion(haceDosMeses);
+        Long idConPedidos = usuarioRepositorio.save(conPedidos).getIdUsuario();
+        Pedido pedido = new Pedido();
+        pedido.setUsuarioId(idConPedidos);
+        pedido.setFecha(LocalDateTime.now());
+        pedido.setSubtotal(BigDecimal.ONE);
+        pedido.setTotal(BigDecimal.ONE);
+        pedido.setEstado(EstadoPedido.EN_PREPARACION);
+        pedidoRepositorio.save(pedido);
+
+        // Token caducado ayer: aún dentro del margen, se conserva la cuenta
+        Usuario reciente = usuario("reciente", false);
+        reciente.setTokenActivacion("reciente");
+        reciente.setFechaExpiracionTokenActivacion(Instant.now().minus(Duration.ofDays(1)));
+        Long idReciente = usuarioRepositorio.save(reciente).getIdUsuario();
+
+        PurgaUsuariosServicio.ResultadoPurga resultado = purga.purgar();
+
+        assertThat(resultado.tokensRecuperacion()).isGreaterThanOrEqualTo(3);
+        assertThat(resultado.usuariosEliminados()).isGreaterThanOrEqualTo(3);
+
+        for (Long id : recuperacionCaducada) {
+            Usuario u = usuarioRepositorio.findById(id).orElseThrow();
+            assertThat(u.getTokenRecuperacion()).isNull();
+            assertThat(u.getFechaTokenRecuperacion()).isNull();
+        }
+        assertThat(usuarioRepositorio.findById(idVigente).orElseThrow().getTokenRecuperacion()).isNotNull();
+
+        for (Long id : abandonadas) {
+            assertThat(usuarioRepositorio.existsById(id)).isFalse();
+        }
+
+        Usuario conservado = usuarioRepositorio.findById(idConPedidos).orElseThrow();
+        assertThat(conservado.getTokenActivacion()).isNull();
+
+        Usuario dentroDelMargen = usuarioRepositorio.findById(idReciente).orElseThrow();
+        assertThat(dentroDelMargen.getTokenActivacion()).isNull();
+        assertThat(dentroDelMargen.getFechaExpiracionTokenActivacion()).isNotNull();
+
+        assertThat(registro.counter("maximacarga.purga.filas", "tipo", "usuarios_inactivos").count())
+                .isEqualTo(resultado.usuariosEliminados());
+
+        // Una segunda ejecución ya no encuentra nada de lo anterior
+        assertThat(purga.purgar().usuariosEliminados()).isZero();
+    }
+
+    @Test
+    void comparaLaExpiracionDeActivacionEnUtcConCualquierZonaHoraria() {
+        // En MariaDB la columna es DATETIME(6), sin zona, y Hibernate escribe
+        // en ella los Instant en UTC; aquí se reproduce con un TIMESTAMP de H2
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("ALTER TABLE usuario ALTER COLUMN fecha_expiracion_token_activacion TIMESTAMP(6)");
+        TimeZone zona = TimeZone.getDefault();
+        try {
+            Usuario caducado = usuario("zonacaducado", false);
+            caducado.setTokenActivacion("zona-caducado");
+            caducado.setFechaExpiracionTokenActivacion(Instant.now().minus(Duration.ofHours(2)));
+            Long idCaducado = usuarioRepositorio.save(caducado).getIdUsuario();
+
+            Usuario vigente = usuario("zonavigente", false);
+            vigente.setTokenActivacion("zona-vigente");
+            vigente.setFechaExpiracionTokenActivacion(Instant.now().plus(Duration.ofHours(2)));
+            Long idVigente = usuarioRepositorio.save(vigente).getIdUsuario();
+
+            // Una conexión abierta con UTC+9 no debe ver caducado
+            // el token al que aún le quedan dos horas
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+            DateTimeUtils.resetCalendar();
+            UsuarioPurgaRepositorioImpl repositorio = new UsuarioPurgaRepositorioImpl(
+                    new JdbcTemplate(new DriverManagerDataSource(urlBaseDatos, "sa", "")));
+
+            assertThat(repositorio.idsConTokenActivacionCaducado(Instant.now(), 1000))
+                    .contains(idCaducado)
+                    .doesNotContain(idVigente);
+        } finally {
+            TimeZone.setDefault(zona);
+            DateTimeUtils.resetCalendar();
+            jdbcTemplate.execute("ALTER TABLE usuario ALTER COLUMN fecha_expiracion_token_activacion"
+                    + " TIMESTAMP(6) WITH TIME ZONE");
+        }
+    }
+
+    private static Usuario usuario(String nombre, boolean activo) {
+        Usuario u = new Usuario("600000040", nombre + "@purga.maximacarga.com", "CLIENTE", "hash");
+        u.setActivo(activo);
+        return u;
+    }
+}
@@ -0,0 +1,82 @@
+package maximacarga.com.servicios;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import maximacarga.com.entidades.Usuario;
+import maximacarga.com.repositorios.UsuarioRepositorio;
+
+@SpringBootTest
+class UsuarioServicioTests {
+
+    /** Tokens enviados, por correo, en lugar de mandarlos. */
+    private static final Map<String, String> ENVIADOS = new ConcurrentHashMap<>();
+
+    @TestConfiguration
+    static class Notificador {
+
+        @Bean
+        @Primary
+        NotificadorRecuperacion notificadorDePrueba() {
+            return ENVIADOS::put;
+        }
+    }
+
+    @Autowired
+    private UsuarioServicio usuarioServicio;
+
+    @Autowired
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void elTokenDeRecuperacionSeGuardaComoHashYSoloSirveEnClaro() {
+        Usuario usuario = usuarioServicio.crearUsuario(
+                new Usuario("600000030", "recuperar@maximacarga.com", "CLIENTE", "antigua"));
+
+        assertThat(usuarioServicio.generarTokenRecuperacion("recuperar@maximacarga.com")).isTrue();
+        assertThat(usuarioServicio.generarTokenRecuperacion("nadie@maximacarga.com")).isFalse();
+
+        // El token en claro solo sale por el notificador
+        String token = ENVIADOS.get("recuperar@maximacarga.com");
+        assertThat(token).isNotNull();
+
+        String guardado = usuarioRepositorio.findById(usuario.getIdUsuario()).orElseThrow().getTokenRecuperacion();
+        assertThat(guardado).hasSize(64).matches("[0-9a-f]+").isNotEqualTo(token);
+
+        // El hash de la base de datos no sirve como token
+        assertThat(usuarioServicio.restablecerContrasenia(guardado, "nueva", passwordEncoder)).isFalse();
+        assertThat(usuarioServicio.restablecerContrasenia(token, "nueva", passwordEncoder)).isTrue();
+
+        Usuario actualizado = usuarioRepositorio.findById(usuario.getIdUsuario()).orElseThrow();
+        assertThat(actualizado.getTokenRecuperacion()).isNull();
+        assertThat(passwordEncoder.matches("nueva", actualizado.getContrasena())).isTrue();
+
+        // Un solo uso
+        assertThat(usuarioServicio.restablecerContrasenia(token, "otra", passwordEncoder)).isFalse();
+    }
+
+    @Test
+    void laBusquedaPorTokenDeRecuperacionTieneIndice() {
+        Integer indices = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = 'IDX_USUARIO_TOKEN_RECUPERACION'",
+                Integer.class);
+        assertThat(indices).isPositive();
+    }
+}
@@ -0,0 +1,62 @@
+package maximacarga.com.servicios;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class VerificacionContraseniaServicioTests {
+
+    @Test
+    void compruebaLaContraseniaFueraDelHiloQueLlama() throws Exception {
+        PasswordEncoder encoder = new BCryptPasswordEncoder(4);
+        VerificacionContraseniaServicio servicio =
+                new VerificacionContraseniaServicio(encoder, new SimpleMeterRegistry(), 1, 1);
+
+        String hash = encoder.encode("secreta");
+
+        assertThat(servicio.comprobar("secreta", hash).get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(servicio.comprobar("otra", hash).get(5, TimeUnit.SECONDS)).isFalse();
+        servicio.cerrar();
+    }
+
+    @Test
+    void rechazaComprobacionesCuandoLaColaEstaLlena() throws Exception {
+        CountDownLatch bloqueo = new CountDownLatch(1);
+        PasswordEncoder lento = new BCryptPasswordEncoder(4) {
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                try {
+                    bloqueo.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        };
+        SimpleMeterRegistry registro = new SimpleMeterRegistry();
+        VerificacionContraseniaServicio servicio =
+                new VerificacionContraseniaServicio(lento, registro, 1, 1);
+
+        CompletableFuture<Boolean> enCurso = servicio.comprobar("a", "x");
+        CompletableFuture<Boolean> enCola = servicio.comprobar("b", "x");
+
+        assertThatThrownBy(() -> servicio.comprobar("c", "x"))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThat(registro.get("maximacarga.bcrypt.rechazos").counter().count()).isEqualTo(1);
+
+        bloqueo.countDown();
+        assertThat(enCurso.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(enCola.get(5, TimeUnit.SECONDS)).isTrue();
+        servicio.cerrar();
+    }
+}
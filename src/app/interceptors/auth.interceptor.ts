@@ -0,0 +1,27 @@
+import { HttpErrorResponse, HttpInterceptorFn } from '@angular/common/http';
+import { catchError, throwError } from 'rxjs';
+
+/**
+ * Añade el token JWT guardado en el login a las peticiones al backend.
+ * Si el backend responde 401 el token ya no vale (caducado o no válido)
+ * y se borra, para no seguir enviándolo en las siguientes peticiones.
+ */
+export const authInterceptor: HttpInterceptorFn = (req, next) => {
+  const token = localStorage.getItem('token');
+
+  if (!token) {
+    return next(req);
+  }
+
+  return next(req.clone({
+    setHeaders: { Authorization: `Bearer ${token}` }
+  })).pipe(
+    catchError((error: unknown) => {
+      if (error instanceof HttpErrorResponse && error.status === 401
+          && localStorage.getItem('token') === token) {
+        localStorage.removeItem('token');
+      }
+      return throwError(() => error);
+    })
+  );
+};